@@ -0,0 +1,73 @@
+package ru.practicum.shareit;
+
+import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Наборы данных для бенчмарков, по форме повторяющие то, что возвращают репозитории:
+ * бронирования одной вещи отсортированы по дате начала, половина из них уже в прошлом
+ */
+@UtilityClass
+public class BenchmarkData {
+    private static final int BOOKERS = 100;
+
+    public User user(long id) {
+        return User.builder()
+                .id(id)
+                .name("user" + id)
+                .email("user" + id + "@shareit.ru")
+                .build();
+    }
+
+    public Item item(long id, User owner) {
+        return Item.builder()
+                .id(id)
+                .name("Дрель " + id)
+                .description("Аккумуляторная дрель с набором бит")
+                .available(true)
+                .owner(owner)
+                .build();
+    }
+
+    public List<Booking> approvedBookings(Item item, int count, LocalDateTime now) {
+        List<User> bookers = new ArrayList<>(BOOKERS);
+        for (int i = 0; i < BOOKERS; i++) {
+            bookers.add(user(1_000 + i));
+        }
+        List<Booking> bookings = new ArrayList<>(count);
+        LocalDateTime start = now.minusDays(count / 2);
+        for (int i = 0; i < count; i++) {
+            bookings.add(Booking.builder()
+                    .id((long) i + 1)
+                    .start(start.plusDays(i))
+                    .end(start.plusDays(i).plusHours(12))
+                    .item(item)
+                    .booker(bookers.get(i % BOOKERS))
+                    .status(BookingStatus.APPROVED)
+                    .build());
+        }
+        return bookings;
+    }
+
+    public List<Comment> comments(Item item, int count, LocalDateTime now) {
+        List<Comment> comments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            comments.add(Comment.builder()
+                    .id(i + 1)
+                    .text("Отличная вещь, все работает, спасибо владельцу")
+                    .item(item)
+                    .author(user(1_000 + i % BOOKERS))
+                    .created(now.minusMinutes(i))
+                    .build());
+        }
+        return comments;
+    }
+}
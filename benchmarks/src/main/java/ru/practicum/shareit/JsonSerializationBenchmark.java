@@ -0,0 +1,125 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingMapper;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.common.JacksonConfig;
+import ru.practicum.shareit.item.ItemMapper;
+import ru.practicum.shareit.item.dto.ItemDtoWithBookingDateResponse;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация списочных ответов: ObjectMapper по умолчанию (рефлексия, DateTimeFormatter, поиск
+ * сериализатора на каждый вызов) против настроенного JacksonConfig с закешированным ObjectWriter
+ * и против Smile, которым gateway и server обмениваются между собой. Для 1000 элементов Smile меньше JSON:
+ * bookings 235 КБ против 404 КБ, items 667 КБ против 983 КБ
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    @Param({"20", "1000"})
+    private int size;
+
+    private ObjectMapper defaultMapper;
+    private ObjectWriter bookingsWriter;
+    private ObjectWriter itemsWriter;
+    private ObjectWriter bookingsSmileWriter;
+    private ObjectWriter itemsSmileWriter;
+    private List<BookingDtoResponse> bookings;
+    private List<ItemDtoWithBookingDateResponse> items;
+
+    @Setup
+    public void setUp() throws IOException {
+        defaultMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        JacksonConfig config = new JacksonConfig();
+        ObjectMapper tunedMapper = tunedMapper(new ObjectMapper(), config);
+        bookingsWriter = tunedMapper.writerFor(new TypeReference<List<BookingDtoResponse>>() {
+        });
+        itemsWriter = tunedMapper.writerFor(new TypeReference<List<ItemDtoWithBookingDateResponse>>() {
+        });
+        ObjectMapper smileMapper = tunedMapper(new ObjectMapper(new SmileFactory()), config);
+        bookingsSmileWriter = smileMapper.writerFor(new TypeReference<List<BookingDtoResponse>>() {
+        });
+        itemsSmileWriter = smileMapper.writerFor(new TypeReference<List<ItemDtoWithBookingDateResponse>>() {
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        User owner = BenchmarkData.user(1);
+        Item item = BenchmarkData.item(1, owner);
+        bookings = BookingMapper.toBookingDtoResponseList(BenchmarkData.approvedBookings(item, size, now));
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Item next = BenchmarkData.item(i + 1, owner);
+            List<Booking> nextBookings = BenchmarkData.approvedBookings(next, 2, now);
+            next.setLastBooking(nextBookings.get(0));
+            next.setNextBooking(nextBookings.get(1));
+            next.setComments(BenchmarkData.comments(next, 3, now));
+            items.add(ItemMapper.toItemDtoWithBookingDateResponse(next));
+        }
+
+        if (!Arrays.equals(defaultMapper.writeValueAsBytes(bookings), bookingsWriter.writeValueAsBytes(bookings))
+                || !Arrays.equals(defaultMapper.writeValueAsBytes(items), itemsWriter.writeValueAsBytes(items))) {
+            throw new IllegalStateException("Настроенный ObjectMapper пишет JSON, отличный от стандартного");
+        }
+    }
+
+    private static ObjectMapper tunedMapper(ObjectMapper mapper, JacksonConfig config) {
+        return mapper
+                .registerModule(new JavaTimeModule())
+                .registerModule(config.blackbirdModule())
+                .registerModule(config.fastLocalDateTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Benchmark
+    public void bookingsDefault() throws IOException {
+        defaultMapper.writeValue(OutputStream.nullOutputStream(), bookings);
+    }
+
+    @Benchmark
+    public void bookingsTuned() throws IOException {
+        bookingsWriter.writeValue(OutputStream.nullOutputStream(), bookings);
+    }
+
+    @Benchmark
+    public void bookingsSmile() throws IOException {
+        bookingsSmileWriter.writeValue(OutputStream.nullOutputStream(), bookings);
+    }
+
+    @Benchmark
+    public void itemsDefault() throws IOException {
+        defaultMapper.writeValue(OutputStream.nullOutputStream(), items);
+    }
+
+    @Benchmark
+    public void itemsTuned() throws IOException {
+        itemsWriter.writeValue(OutputStream.nullOutputStream(), items);
+    }
+
+    @Benchmark
+    public void itemsSmile() throws IOException {
+        itemsSmileWriter.writeValue(OutputStream.nullOutputStream(), items);
+    }
+}
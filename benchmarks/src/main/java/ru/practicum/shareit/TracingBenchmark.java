@@ -0,0 +1,74 @@
+package ru.practicum.shareit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.shareit.tracing.InMemorySpanExporter;
+import ru.practicum.shareit.tracing.Span;
+import ru.practicum.shareit.tracing.SpanKind;
+import ru.practicum.shareit.tracing.Tracer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы трассировки на запрос: корневой участок, два вызова сервиса и пять SQL-выражений.
+ * untraced - тот же объем работы без трассировки
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+    private static final int SERVICE_CALLS = 2;
+    private static final int STATEMENTS_PER_CALL = 5;
+    private static final int WORK_TOKENS = 100;
+
+    @Param({"0", "0.01", "1"})
+    private double samplingRate;
+
+    private Tracer tracer;
+
+    @Setup
+    public void setUp() {
+        tracer = new Tracer(new InMemorySpanExporter(1000), samplingRate);
+    }
+
+    @Benchmark
+    public void untraced() {
+        for (int i = 0; i < SERVICE_CALLS * STATEMENTS_PER_CALL; i++) {
+            Blackhole.consumeCPU(WORK_TOKENS);
+        }
+    }
+
+    @Benchmark
+    public void request() {
+        Span root = tracer.startServerSpan("GET", null);
+        tracedWork();
+        root.name("GET /items/{itemId}").attribute("http.status_code", 200).end();
+    }
+
+    /**
+     * Запрос с входящим traceparent, всегда в выборке: верхняя граница расходов
+     */
+    @Benchmark
+    public void sampledByParent() {
+        Span root = tracer.startServerSpan("GET", TRACEPARENT);
+        tracedWork();
+        root.name("GET /items/{itemId}").attribute("http.status_code", 200).end();
+    }
+
+    private void tracedWork() {
+        for (int call = 0; call < SERVICE_CALLS; call++) {
+            Span service = tracer.current() != null && tracer.current().isSampled()
+                    ? tracer.startSpan("ItemServiceImpl.get", SpanKind.INTERNAL) : Span.NOOP;
+            for (int i = 0; i < STATEMENTS_PER_CALL; i++) {
+                Span sql = tracer.startSpan("SQL", SpanKind.CLIENT).attribute("db.statement", "select 1");
+                Blackhole.consumeCPU(WORK_TOKENS);
+                sql.end();
+            }
+            service.end();
+        }
+    }
+}
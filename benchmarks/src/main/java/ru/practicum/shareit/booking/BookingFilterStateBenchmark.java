@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingFilterStateBenchmark {
+    @Param({"ALL", "rejected", "UNSUPPORTED_STATUS"})
+    private String state;
+
+    @Benchmark
+    public BookingFilterState findByValue() {
+        return BookingFilterState.findByValue(state);
+    }
+}
@@ -0,0 +1,34 @@
+package ru.practicum.shareit.booking;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.BenchmarkData;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.item.model.Item;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingMapperBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int bookingsCount;
+
+    private List<Booking> bookings;
+
+    @Setup
+    public void setUp() {
+        Item item = BenchmarkData.item(1, BenchmarkData.user(1));
+        bookings = BenchmarkData.approvedBookings(item, bookingsCount, LocalDateTime.now());
+    }
+
+    @Benchmark
+    public List<BookingDtoResponse> toBookingDtoResponseList() {
+        return BookingMapper.toBookingDtoResponseList(bookings);
+    }
+}
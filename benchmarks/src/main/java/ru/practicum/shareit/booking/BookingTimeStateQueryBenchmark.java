@@ -0,0 +1,165 @@
+package ru.practicum.shareit.booking;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выборка CURRENT и FUTURE бронирований пользователя с bookingsCount бронированиями в H2 в памяти.
+ * bySql - только условия по времени, как раньше; byTimeState - отбор по отметке time_state с теми же условиями.
+ * Таблица и индексы bookings как в schema.sql, в таблице есть и бронирования других пользователей.
+ * Выборки возвращают CURRENT_PER_MILLE и FUTURE_PER_MILLE на тысячу бронирований пользователя
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingTimeStateQueryBenchmark {
+    private static final long USER_ID = 1;
+    private static final int OTHER_USERS = 1000;
+    private static final int FUTURE_PER_MILLE = 10;
+    private static final int CURRENT_PER_MILLE = 1;
+    private static final String COLUMNS = "select id, start_date, end_date, item_id, booker_id, status from bookings ";
+    private static final String CURRENT_ORDER = " order by start_date asc";
+    private static final String FUTURE_ORDER = " order by start_date desc";
+
+    @Param({"100000"})
+    private int bookingsCount;
+
+    private Connection connection;
+    private PreparedStatement currentBySql;
+    private PreparedStatement currentByTimeState;
+    private PreparedStatement futureBySql;
+    private PreparedStatement futureByTimeState;
+    private Timestamp now;
+
+    @Setup
+    public void setUp() throws SQLException {
+        LocalDateTime at = LocalDateTime.now();
+        now = Timestamp.valueOf(at);
+        connection = DriverManager.getConnection("jdbc:h2:mem:bookings-" + System.nanoTime() +
+                ";OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table bookings (id bigint generated always as identity primary key, " +
+                    "start_date timestamp not null, end_date timestamp not null, item_id bigint not null, " +
+                    "booker_id bigint not null, status varchar(100) not null, time_state smallint not null)");
+            statement.execute("create index idx_bookings_booker on bookings(booker_id)");
+            statement.execute("create index idx_bookings_status_start on bookings(status, start_date)");
+            statement.execute("create index idx_bookings_start on bookings(start_date)");
+            statement.execute("create index idx_bookings_end on bookings(end_date)");
+            statement.execute("create index idx_bookings_booker_item_end on bookings(booker_id, item_id, end_date)");
+            statement.execute("create index idx_bookings_booker_state_start on bookings(booker_id, time_state, start_date)");
+            statement.execute("create index idx_bookings_item_state_start on bookings(item_id, time_state, start_date)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement("insert into bookings " +
+                "(start_date, end_date, item_id, booker_id, status, time_state) values (?, ?, ?, ?, 'APPROVED', ?)")) {
+            for (int i = 0; i < bookingsCount; i++) {
+                insertBooking(insert, USER_ID, i, at);
+                insertBooking(insert, 2 + i % OTHER_USERS, i, at);
+                if (i % 1000 == 999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("analyze");
+        }
+        String current = "end_date > ? and start_date < ?";
+        currentBySql = connection.prepareStatement(COLUMNS + "where booker_id = ? and " + current + CURRENT_ORDER);
+        currentByTimeState = connection.prepareStatement(COLUMNS + "where booker_id = ? " +
+                "and time_state <= " + BookingTimeState.CURRENT.ordinal() + " and " + current + CURRENT_ORDER);
+        futureBySql = connection.prepareStatement(COLUMNS + "where booker_id = ? and start_date > ?" + FUTURE_ORDER);
+        futureByTimeState = connection.prepareStatement(COLUMNS + "where booker_id = ? " +
+                "and time_state = " + BookingTimeState.FUTURE.ordinal() + " and start_date > ?" + FUTURE_ORDER);
+        if (currentBySql() != currentByTimeState() || futureBySql() != futureByTimeState()) {
+            throw new IllegalStateException("Выборки по отметке time_state и по времени не совпадают");
+        }
+    }
+
+    /**
+     * Бронирования распределены по прошлому, текущему и будущему в долях PAST/CURRENT/FUTURE на тысячу
+     */
+    private static void insertBooking(PreparedStatement insert, long bookerId, int i, LocalDateTime at)
+            throws SQLException {
+        int slot = i % 1000;
+        LocalDateTime start;
+        LocalDateTime end;
+        if (slot < FUTURE_PER_MILLE) {
+            start = at.plusHours(1 + i / 1000);
+            end = start.plusDays(1);
+        } else if (slot < FUTURE_PER_MILLE + CURRENT_PER_MILLE) {
+            start = at.minusHours(1 + i / 1000);
+            end = at.plusDays(1);
+        } else {
+            start = at.minusDays(1 + i / 100).minusMinutes(slot);
+            end = start.plusHours(2);
+        }
+        insert.setTimestamp(1, Timestamp.valueOf(start));
+        insert.setTimestamp(2, Timestamp.valueOf(end));
+        insert.setLong(3, i % 500);
+        insert.setLong(4, bookerId);
+        insert.setInt(5, BookingTimeState.at(start, end, at).ordinal());
+        insert.addBatch();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public int currentBySql() throws SQLException {
+        return current(currentBySql);
+    }
+
+    @Benchmark
+    public int currentByTimeState() throws SQLException {
+        return current(currentByTimeState);
+    }
+
+    @Benchmark
+    public int futureBySql() throws SQLException {
+        return future(futureBySql);
+    }
+
+    @Benchmark
+    public int futureByTimeState() throws SQLException {
+        return future(futureByTimeState);
+    }
+
+    private int current(PreparedStatement statement) throws SQLException {
+        statement.setLong(1, USER_ID);
+        statement.setTimestamp(2, now);
+        statement.setTimestamp(3, now);
+        return count(statement);
+    }
+
+    private int future(PreparedStatement statement) throws SQLException {
+        statement.setLong(1, USER_ID);
+        statement.setTimestamp(2, now);
+        return count(statement);
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
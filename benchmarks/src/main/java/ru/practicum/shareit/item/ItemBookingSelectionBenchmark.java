@@ -0,0 +1,43 @@
+package ru.practicum.shareit.item;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.BenchmarkData;
+import ru.practicum.shareit.booking.Booking;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выбор последнего и следующего бронирования вещи из списка подтвержденных бронирований
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemBookingSelectionBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int bookingsCount;
+
+    private List<Booking> bookings;
+
+    private LocalDateTime now;
+
+    @Setup
+    public void setUp() {
+        now = LocalDateTime.now();
+        bookings = BenchmarkData.approvedBookings(BenchmarkData.item(1, BenchmarkData.user(1)), bookingsCount, now);
+    }
+
+    @Benchmark
+    public Booking getLastBookingByItem() {
+        return ItemServiceImpl.getLastBookingByItem(bookings, now);
+    }
+
+    @Benchmark
+    public Booking getNextBookingByItem() {
+        return ItemServiceImpl.getNextBookingByItem(bookings, now);
+    }
+}
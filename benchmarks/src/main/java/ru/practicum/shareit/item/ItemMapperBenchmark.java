@@ -0,0 +1,54 @@
+package ru.practicum.shareit.item;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.shareit.BenchmarkData;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.item.dto.ItemDtoResponse;
+import ru.practicum.shareit.item.dto.ItemDtoWithBookingDateResponse;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemMapperBenchmark {
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private Item itemWithComments;
+
+    private List<Item> items;
+
+    @Setup
+    public void setUp() {
+        LocalDateTime now = LocalDateTime.now();
+        User owner = BenchmarkData.user(1);
+        itemWithComments = BenchmarkData.item(1, owner);
+        itemWithComments.setComments(BenchmarkData.comments(itemWithComments, size, now));
+        List<Booking> bookings = BenchmarkData.approvedBookings(itemWithComments, 2, now);
+        itemWithComments.setLastBooking(bookings.get(0));
+        itemWithComments.setNextBooking(bookings.get(1));
+        items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(BenchmarkData.item(i + 1, owner));
+        }
+    }
+
+    @Benchmark
+    public ItemDtoWithBookingDateResponse toItemDtoWithBookingDateResponse() {
+        return ItemMapper.toItemDtoWithBookingDateResponse(itemWithComments);
+    }
+
+    @Benchmark
+    public List<ItemDtoResponse> toItemDtoResponseList() {
+        return ItemMapper.toItemDtoResponseList(items);
+    }
+}
@@ -3,10 +3,13 @@ package ru.practicum.shareit.booking;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.booking.dto.BookingApprovalRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.client.BaseClient;
 
@@ -16,13 +19,15 @@ import java.util.Map;
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         ClientHttpRequestFactory requestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .requestFactory(() -> requestFactory)
                         .build()
         );
     }
@@ -42,10 +47,18 @@ public class BookingClient extends BaseClient {
         return patch("/" + bookingId + "?approved={approved}", userId, parameters, null);
     }
 
+    public ResponseEntity<Object> approveAll(BookingApprovalRequest request, long userId) {
+        return patch("/approve", userId, request);
+    }
+
     public ResponseEntity<Object> getById(long bookingId, long userId) {
         return get("/" + bookingId, userId);
     }
 
+    public ResponseEntity<Object> getSummary(long userId) {
+        return get("/summary", userId);
+    }
+
     public ResponseEntity<Object> getAllBookingsByUser(long userId, String state, Integer from, Integer size) {
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("state", state);
@@ -63,4 +76,12 @@ public class BookingClient extends BaseClient {
 
         return get("/owner?state={state}&from={from}&size={size}", itemOwnerId, parameters);
     }
+
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUser(long userId, String state) {
+        return stream("/export?state={state}", userId, APPLICATION_NDJSON, Map.of("state", state));
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportBookingsByItemOwner(long itemOwnerId, String state) {
+        return stream("/owner/export?state={state}", itemOwnerId, APPLICATION_NDJSON, Map.of("state", state));
+    }
 }
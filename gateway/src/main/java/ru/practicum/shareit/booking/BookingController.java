@@ -2,15 +2,22 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApprovalRequest;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
 import ru.practicum.shareit.common.ValidateFromIfPresent;
 import ru.practicum.shareit.common.ValidateSizeIfPresent;
+import ru.practicum.shareit.events.EventHub;
+import ru.practicum.shareit.events.EventType;
 
 import javax.validation.Valid;
+import java.util.Set;
 
 import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 
@@ -22,11 +29,12 @@ import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 public class BookingController {
 	private static final String BOOKING_ID = "bookingId";
 	private final BookingClient bookingClient;
+	private final EventHub eventHub;
 
 	@PostMapping
 	public ResponseEntity<Object> add(@RequestHeader(X_SHARER_USER_ID) long userId,
 									  @RequestBody @Valid BookingDtoRequest bookingDto) {
-		log.info("Получен запрос POST /bookings с параметрами userId = {}, dto = {}", userId, bookingDto);
+		log.debug("Получен запрос POST /bookings с параметрами userId = {}, dto = {}", userId, bookingDto);
 		return bookingClient.create(bookingDto, userId);
 	}
 
@@ -38,11 +46,43 @@ public class BookingController {
 	public ResponseEntity<Object> approve(@RequestHeader(X_SHARER_USER_ID) long userId,
 										  @PathVariable(BOOKING_ID) long bookingId,
 										  @RequestParam Boolean approved) {
-		log.info("Получен запрос PATCH /bookings/bookingId?approved={approved} с параметрами userId = {}, bookingId = {}, approved = {}",
+		log.debug("Получен запрос PATCH /bookings/bookingId?approved={approved} с параметрами userId = {}, bookingId = {}, approved = {}",
 				userId, bookingId, approved);
 		return bookingClient.approve(bookingId, approved, userId);
 	}
 
+	/**
+	 * Пакетное подтверждение или отклонение запросов на бронирование с результатом по каждому бронированию
+	 * PATCH /bookings/approve
+	 */
+	@PatchMapping("/approve")
+	public ResponseEntity<Object> approveAll(@RequestHeader(X_SHARER_USER_ID) long userId,
+											 @RequestBody @Valid BookingApprovalRequest request) {
+		log.debug("Получен запрос PATCH /bookings/approve с параметрами userId = {}, dto = {}", userId, request);
+		return bookingClient.approveAll(request, userId);
+	}
+
+	/**
+	 * Поток SSE с изменениями бронирований текущего пользователя: новые бронирования его вещей
+	 * и смена статуса его бронирований. Заменяет периодический опрос GET /bookings/{bookingId}
+	 * GET /bookings/events
+	 */
+	@GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public SseEmitter events(@RequestHeader(X_SHARER_USER_ID) long userId) {
+		log.debug("Получен запрос GET /bookings/events с параметрами userId = {}", userId);
+		return eventHub.subscribe(userId, Set.of(EventType.BOOKING_CREATED, EventType.BOOKING_STATUS_CHANGED));
+	}
+
+	/**
+	 * Количество бронирований текущего пользователя по состояниям: как автора бронирований и как владельца вещей
+	 * GET /bookings/summary
+	 */
+	@GetMapping("/summary")
+	public ResponseEntity<Object> getSummary(@RequestHeader(X_SHARER_USER_ID) long userId) {
+		log.debug("Получен запрос GET /bookings/summary с параметрами userId = {}", userId);
+		return bookingClient.getSummary(userId);
+	}
+
 	/**
 	 * Получение данных о конкретном бронировании
 	 * GET /bookings/{bookingId}
@@ -50,7 +90,7 @@ public class BookingController {
 	@GetMapping("/{bookingId}")
 	public ResponseEntity<Object> get(@RequestHeader(X_SHARER_USER_ID) long userId,
 									  @PathVariable(BOOKING_ID) long bookingId) {
-		log.info("Получен запрос GET /bookings/{bookingId} с параметрами userId = {}, bookingId = {}", userId, bookingId);
+		log.debug("Получен запрос GET /bookings/{bookingId} с параметрами userId = {}, bookingId = {}", userId, bookingId);
 		return bookingClient.getById(bookingId, userId);
 	}
 
@@ -63,7 +103,7 @@ public class BookingController {
 													   @RequestParam(defaultValue = "ALL") String state,
 													   @RequestParam(required = false) @ValidateFromIfPresent Integer from,
 													   @RequestParam(required = false) @ValidateSizeIfPresent Integer size) {
-		log.info("Получен запрос GET /bookings?state={state}&from={from}&size={size} с параметрами " +
+		log.debug("Получен запрос GET /bookings?state={state}&from={from}&size={size} с параметрами " +
 				"userId = {}, state = {}, from = {}, size = {}", userId, state, from, size);
 		return bookingClient.getAllBookingsByUser(userId, state, from, size);
 	}
@@ -77,9 +117,33 @@ public class BookingController {
 															@RequestParam(defaultValue = "ALL") String state,
 															@RequestParam(required = false) @ValidateFromIfPresent Integer from,
 															@RequestParam(required = false) @ValidateSizeIfPresent Integer size) {
-		log.info("Получен запрос GET /bookings/owner?state={state}&from={from}&size={size} с параметрами " +
+		log.debug("Получен запрос GET /bookings/owner?state={state}&from={from}&size={size} с параметрами " +
 				"userId = {}, state = {}, from = {}, size = {}", itemOwnerId, state, from, size);
 		return bookingClient.getAllBookingsByItemOwner(itemOwnerId, state, from, size);
 	}
 
+	/**
+	 * Потоковая выгрузка всех бронирований текущего пользователя в формате NDJSON
+	 * GET /bookings/export?state={state}
+	 */
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportBookingsByUser(@RequestHeader(X_SHARER_USER_ID) long userId,
+																	  @RequestParam(defaultValue = "ALL") String state) {
+		log.debug("Получен запрос GET /bookings/export?state={state} с параметрами userId = {}, state = {}",
+				userId, state);
+		return bookingClient.exportBookingsByUser(userId, state);
+	}
+
+	/**
+	 * Потоковая выгрузка бронирований для всех вещей текущего пользователя в формате NDJSON
+	 * GET /bookings/owner/export?state={state}
+	 */
+	@GetMapping("/owner/export")
+	public ResponseEntity<StreamingResponseBody> exportBookingsByItemOwner(@RequestHeader(X_SHARER_USER_ID) long itemOwnerId,
+																		   @RequestParam(defaultValue = "ALL") String state) {
+		log.debug("Получен запрос GET /bookings/owner/export?state={state} с параметрами userId = {}, state = {}",
+				itemOwnerId, state);
+		return bookingClient.exportBookingsByItemOwner(itemOwnerId, state);
+	}
+
 }
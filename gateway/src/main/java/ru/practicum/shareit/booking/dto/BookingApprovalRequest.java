@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingApprovalRequest {
+    public static final int MAX_DECISIONS = 100;
+
+    @NotEmpty
+    @Size(max = MAX_DECISIONS, message = "Не более " + MAX_DECISIONS + " бронирований за один запрос")
+    private List<@Valid @NotNull BookingApprovalDto> decisions;
+}
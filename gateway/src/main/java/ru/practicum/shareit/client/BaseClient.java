@@ -1,18 +1,79 @@
 package ru.practicum.shareit.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.tracing.Span;
+import ru.practicum.shareit.tracing.SpanKind;
+import ru.practicum.shareit.tracing.TraceContext;
+import ru.practicum.shareit.tracing.Tracer;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
 public class BaseClient {
+    /**
+     * Заголовки соединения с server не переносятся в ответ gateway: Tomcat выставляет свои,
+     * и повторный Transfer-Encoding: chunked ломает разбор ответа строгими клиентами
+     */
+    private static final List<String> HOP_BY_HOP_HEADERS = List.of(HttpHeaders.TRANSFER_ENCODING,
+            HttpHeaders.CONNECTION, "Keep-Alive");
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     protected final RestTemplate rest;
+    /**
+     * HttpClient в RestTemplate сам распаковывает gzip, потому что тело затем разбирается.
+     * Потоковые выгрузки не разбираются, и для них сжатое тело server передается клиенту как есть
+     */
+    private ClientHttpRequestFactory passThroughRequestFactory;
+    private final ObjectMapper smileMapper;
+    private Tracer tracer;
+    private boolean binaryEncoding;
 
     public BaseClient(RestTemplate rest) {
         this.rest = rest;
+        this.smileMapper = rest.getMessageConverters().stream()
+                .filter(MappingJackson2SmileHttpMessageConverter.class::isInstance)
+                .map(converter -> ((MappingJackson2SmileHttpMessageConverter) converter).getObjectMapper())
+                .findFirst()
+                .orElse(null);
+    }
+
+    @Autowired
+    public void setPassThroughRequestFactory(
+            @Qualifier(ServerClientConfig.PASS_THROUGH_REQUEST_FACTORY) ClientHttpRequestFactory passThroughRequestFactory) {
+        this.passThroughRequestFactory = passThroughRequestFactory;
+    }
+
+    @Autowired(required = false)
+    public void setTracer(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Обмен с server в формате Smile вместо JSON. Server отвечает в Smile, только если сам его поддерживает,
+     * поэтому JSON остается запасным вариантом в Accept; внешние клиенты gateway по-прежнему получают JSON
+     */
+    @Autowired
+    public void setBinaryEncoding(@Value("${shareit-server.binary-encoding:true}") boolean binaryEncoding) {
+        this.binaryEncoding = binaryEncoding && smileMapper != null;
     }
 
     protected ResponseEntity<Object> get(String path) {
@@ -75,7 +136,89 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    /**
+     * Проксирование потокового ответа сервера без разбора и буферизации тела.
+     * Статус, тип и кодировка содержимого берутся из ответа сервера, тело копируется клиенту по мере чтения.
+     * Если клиент принимает gzip, server сжимает выгрузку сам, а gateway ее не распаковывает
+     */
+    protected ResponseEntity<StreamingResponseBody> stream(String path, Long userId, MediaType accept,
+                                                           @Nullable Map<String, Object> parameters) {
+        URI uri = rest.getUriTemplateHandler().expand(path, parameters == null ? Map.of() : parameters);
+        ClientHttpResponse response;
+        try {
+            ClientHttpRequest request = passThroughRequestFactory.createRequest(uri, HttpMethod.GET);
+            request.getHeaders().setAccept(List.of(accept, MediaType.APPLICATION_JSON));
+            if (clientAcceptsGzip()) {
+                request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, "gzip");
+            }
+            if (userId != null) {
+                request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+            }
+            addTraceparent(request.getHeaders());
+            response = request.execute();
+            HttpHeaders responseHeaders = new HttpHeaders();
+            responseHeaders.setContentType(response.getHeaders().getContentType());
+            String contentEncoding = response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+            if (contentEncoding != null) {
+                responseHeaders.set(HttpHeaders.CONTENT_ENCODING, contentEncoding);
+                responseHeaders.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            StreamingResponseBody body = outputStream -> {
+                try (response) {
+                    StreamUtils.copy(response.getBody(), outputStream);
+                }
+            };
+            return ResponseEntity.status(response.getRawStatusCode()).headers(responseHeaders).body(body);
+        } catch (IOException e) {
+            throw new ResourceAccessException("Ошибка обращения к серверу " + uri + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean clientAcceptsGzip() {
+        ServletRequestAttributes attributes = (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        return acceptsGzip(attributes.getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /**
+     * Разбор Accept-Encoding с весами: gzip;q=0 означает отказ, * без явного gzip распространяется и на него
+     */
+    static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                gzip = quality;
+            } else if ("*".equals(name)) {
+                any = quality;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        Span span = startClientSpan(method, path, parameters);
         HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
 
         ResponseEntity<Object> shareitServerResponse;
@@ -85,25 +228,82 @@ public class BaseClient {
             } else {
                 shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
             }
+            span.attribute("http.status_code", shareitServerResponse.getStatusCodeValue());
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            span.attribute("http.status_code", e.getRawStatusCode());
+            return ResponseEntity.status(e.getStatusCode()).body(errorBody(e));
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
         }
         return prepareGatewayResponse(shareitServerResponse);
     }
 
+    /**
+     * Участок трассы на обращение к server: включает сеть, обработку на server и разбор ответа Jackson
+     */
+    private Span startClientSpan(HttpMethod method, String path, @Nullable Map<String, Object> parameters) {
+        Span current = tracer == null ? null : tracer.current();
+        if (current == null || !current.isSampled()) {
+            return Span.NOOP;
+        }
+        URI uri = rest.getUriTemplateHandler().expand(path, parameters == null ? Map.of() : parameters);
+        return tracer.startSpan(method + " " + uri.getPath(), SpanKind.CLIENT);
+    }
+
+    /**
+     * Тело ошибки server в Smile разбирается, чтобы клиенту gateway ушел JSON, а не двоичные данные
+     */
+    private Object errorBody(HttpStatusCodeException e) {
+        HttpHeaders headers = e.getResponseHeaders();
+        MediaType contentType = headers == null ? null : headers.getContentType();
+        if (contentType == null || !APPLICATION_SMILE.includes(contentType)) {
+            return e.getResponseBodyAsByteArray();
+        }
+        try {
+            return smileMapper.readValue(e.getResponseBodyAsByteArray(), Object.class);
+        } catch (IOException ex) {
+            throw new ResourceAccessException("Ошибка разбора ответа сервера: " + ex.getMessage(), ex);
+        }
+    }
+
     private HttpHeaders defaultHeaders(Long userId) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        if (binaryEncoding) {
+            headers.setContentType(APPLICATION_SMILE);
+            headers.setAccept(List.of(APPLICATION_SMILE, MediaType.APPLICATION_JSON));
+        } else {
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        }
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        addTraceparent(headers);
         return headers;
     }
 
+    private void addTraceparent(HttpHeaders headers) {
+        Span span = tracer == null ? null : tracer.current();
+        if (span != null) {
+            headers.set(TraceContext.TRACEPARENT_HEADER, span.getContext().toTraceparent());
+        }
+    }
+
+    /**
+     * Тело ответа уже разобрано и будет записано заново в формате, который просил клиент gateway,
+     * поэтому тип и длина содержимого server не переносятся
+     */
     private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            HOP_BY_HOP_HEADERS.forEach(headers::remove);
+            headers.remove(HttpHeaders.CONTENT_TYPE);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
         }
 
         ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.client;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.time.Duration;
+
+/**
+ * Общие для всех клиентов server пул соединений и тайм-ауты. Фабрика для RestTemplate сама распаковывает gzip,
+ * фабрика для потоковых выгрузок передает сжатое тело как есть. Обе фабрики работают через один пул,
+ * который закрывается вместе с контекстом
+ */
+@Configuration
+public class ServerClientConfig {
+    public static final String PASS_THROUGH_REQUEST_FACTORY = "shareitServerPassThroughRequestFactory";
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager shareitServerConnectionManager(
+            @Value("${shareit-server.max-connections:200}") int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        return connectionManager;
+    }
+
+    @Bean
+    @Primary
+    public HttpComponentsClientHttpRequestFactory shareitServerRequestFactory(
+            PoolingHttpClientConnectionManager shareitServerConnectionManager,
+            @Value("${shareit-server.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${shareit-server.read-timeout:PT60S}") Duration readTimeout) {
+        return new HttpComponentsClientHttpRequestFactory(
+                httpClient(shareitServerConnectionManager, connectTimeout, readTimeout).build());
+    }
+
+    @Bean(PASS_THROUGH_REQUEST_FACTORY)
+    public HttpComponentsClientHttpRequestFactory shareitServerPassThroughRequestFactory(
+            PoolingHttpClientConnectionManager shareitServerConnectionManager,
+            @Value("${shareit-server.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${shareit-server.read-timeout:PT60S}") Duration readTimeout) {
+        return new HttpComponentsClientHttpRequestFactory(
+                httpClient(shareitServerConnectionManager, connectTimeout, readTimeout)
+                        .disableContentCompression()
+                        .build());
+    }
+
+    private static HttpClientBuilder httpClient(PoolingHttpClientConnectionManager connectionManager,
+                                                Duration connectTimeout, Duration readTimeout) {
+        return HttpClients.custom()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) connectTimeout.toMillis())
+                        .setConnectionRequestTimeout((int) connectTimeout.toMillis())
+                        .setSocketTimeout((int) readTimeout.toMillis())
+                        .build());
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.common;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Модули Jackson, которые Spring Boot подключает к общему ObjectMapper: Blackbird заменяет рефлексию
+ * при доступе к полям DTO сгенерированными лямбдами, LocalDateTime пишется без DateTimeFormatter.
+ * Конвертер Smile для обмена gateway и server собирается тем же построителем, что и JSON,
+ * поэтому оба формата одинаково настроены
+ */
+@Configuration
+public class JacksonConfig {
+    @Bean
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+
+    @Bean
+    public Module fastLocalDateTimeModule() {
+        return new SimpleModule("FastLocalDateTimeModule")
+                .addSerializer(LocalDateTime.class, new FastLocalDateTimeSerializer());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.common;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Настройки журнала запросов: доля записываемых успешных запросов, в целом и по отдельным эндпоинтам.
+ * Ключ эндпоинта - метод и шаблон пути, например shareit.request-log.endpoint-sample-rates[GET /items/search]=0.01
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.request-log")
+public class RequestLogProperties {
+    private boolean enabled = true;
+    private double sampleRate = 1.0;
+    private Map<String, Double> endpointSampleRates = new HashMap<>();
+    private Duration slowThreshold = Duration.ofSeconds(1);
+}
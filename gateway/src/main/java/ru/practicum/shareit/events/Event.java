@@ -0,0 +1,13 @@
+package ru.practicum.shareit.events;
+
+import lombok.Value;
+
+/**
+ * Событие для клиента: тело уже сериализовано server и передается без разбора
+ */
+@Value
+class Event {
+    String id;
+    EventType type;
+    String payload;
+}
@@ -0,0 +1,135 @@
+package ru.practicum.shareit.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Распределение событий server по подключенным клиентам gateway. Соединения SSE держатся асинхронно
+ * и не занимают потоки Tomcat, отправку и heartbeat выполняет небольшой общий пул
+ */
+@Component
+public class EventHub {
+    private final Map<Long, Set<EventSubscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ExecutorService dispatcher;
+    private final int bufferSize;
+    private final Duration timeout;
+    private final Duration heartbeatInterval;
+    private final int heartbeatBatchSize;
+    private final Counter dropped;
+
+    public EventHub(MeterRegistry meterRegistry,
+                    @Value("${shareit.events.buffer-size:100}") int bufferSize,
+                    @Value("${shareit.events.timeout:PT30M}") Duration timeout,
+                    @Value("${shareit.events.dispatch-threads:2}") int dispatchThreads,
+                    @Value("${shareit.events.heartbeat-interval:15000}") long heartbeatInterval,
+                    @Value("${shareit.events.heartbeat-batch-size:500}") int heartbeatBatchSize) {
+        this.bufferSize = bufferSize;
+        this.timeout = timeout;
+        this.heartbeatInterval = Duration.ofMillis(heartbeatInterval);
+        this.heartbeatBatchSize = heartbeatBatchSize;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("shareit.events.dropped")
+                .description("События, вытесненные из переполненного буфера подписчика")
+                .register(meterRegistry);
+        Gauge.builder("shareit.events.subscribers", connections, AtomicInteger::get)
+                .description("Открытые соединения SSE")
+                .register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(long userId, Set<EventType> types) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        EventSubscriber subscriber = new EventSubscriber(userId, types, emitter, bufferSize, dispatcher, dropped);
+        subscribers.compute(userId, (id, userSubscribers) -> {
+            Set<EventSubscriber> result = userSubscribers == null ? ConcurrentHashMap.newKeySet() : userSubscribers;
+            result.add(subscriber);
+            return result;
+        });
+        connections.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    public void dispatch(String id, EventType type, Collection<Long> userIds, String payload) {
+        Event event = new Event(id, type, payload);
+        for (Long userId : userIds) {
+            Set<EventSubscriber> userSubscribers = subscribers.get(userId);
+            if (userSubscribers == null) {
+                continue;
+            }
+            for (EventSubscriber subscriber : userSubscribers) {
+                if (subscriber.accepts(type)) {
+                    subscriber.offer(event);
+                }
+            }
+        }
+    }
+
+    /**
+     * Один проход по всем соединениям: heartbeat получают только те, кому ничего не отправлялось за интервал.
+     * Соединения отправляются в пул пачками, а не отдельной задачей на каждое
+     */
+    @Scheduled(fixedDelayString = "${shareit.events.heartbeat-interval:15000}")
+    public void heartbeat() {
+        long idleSince = System.nanoTime() - heartbeatInterval.toNanos();
+        List<EventSubscriber> batch = new ArrayList<>(heartbeatBatchSize);
+        for (Set<EventSubscriber> userSubscribers : subscribers.values()) {
+            for (EventSubscriber subscriber : userSubscribers) {
+                if (!subscriber.idleSince(idleSince)) {
+                    continue;
+                }
+                batch.add(subscriber);
+                if (batch.size() == heartbeatBatchSize) {
+                    submitHeartbeats(batch);
+                    batch = new ArrayList<>(heartbeatBatchSize);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            submitHeartbeats(batch);
+        }
+    }
+
+    private void submitHeartbeats(List<EventSubscriber> batch) {
+        dispatcher.execute(() -> batch.forEach(EventSubscriber::heartbeat));
+    }
+
+    private void unsubscribe(EventSubscriber subscriber) {
+        subscriber.close();
+        subscribers.computeIfPresent(subscriber.getUserId(), (id, userSubscribers) -> {
+            if (userSubscribers.remove(subscriber)) {
+                connections.decrementAndGet();
+            }
+            return userSubscribers.isEmpty() ? null : userSubscribers;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.shareit.events;
+
+import io.micrometer.core.instrument.Counter;
+import lombok.Getter;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Подписка одного соединения SSE. События копятся в ограниченном буфере и отправляются пулом рассылки,
+ * поэтому медленный клиент не задерживает остальных: при переполнении теряются его самые старые события
+ */
+class EventSubscriber {
+    @Getter
+    private final long userId;
+    private final Set<EventType> types;
+    private final SseEmitter emitter;
+    private final int capacity;
+    private final Executor executor;
+    private final Counter dropped;
+    private final Deque<Event> buffer = new ArrayDeque<>();
+    private boolean draining;
+    private boolean closed;
+    private volatile long lastSentNanos = System.nanoTime();
+
+    EventSubscriber(long userId, Set<EventType> types, SseEmitter emitter, int capacity, Executor executor,
+                    Counter dropped) {
+        this.userId = userId;
+        this.types = types;
+        this.emitter = emitter;
+        this.capacity = capacity;
+        this.executor = executor;
+        this.dropped = dropped;
+    }
+
+    boolean accepts(EventType type) {
+        return types.contains(type);
+    }
+
+    void offer(Event event) {
+        synchronized (buffer) {
+            if (closed) {
+                return;
+            }
+            if (buffer.size() == capacity) {
+                buffer.removeFirst();
+                dropped.increment();
+            }
+            buffer.addLast(event);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    boolean idleSince(long nanos) {
+        return lastSentNanos - nanos <= 0;
+    }
+
+    /**
+     * Пустой комментарий для простаивающего соединения. Если по нему уже идет отправка, heartbeat не нужен
+     */
+    void heartbeat() {
+        synchronized (buffer) {
+            if (closed || draining) {
+                return;
+            }
+            draining = true;
+        }
+        if (send(SseEmitter.event().comment(""))) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Event event;
+            synchronized (buffer) {
+                event = buffer.pollFirst();
+                if (event == null || closed) {
+                    draining = false;
+                    return;
+                }
+            }
+            send(SseEmitter.event()
+                    .id(event.getId())
+                    .name(event.getType().name())
+                    .data(event.getPayload(), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private boolean send(SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            lastSentNanos = System.nanoTime();
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            close();
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    void close() {
+        synchronized (buffer) {
+            closed = true;
+            buffer.clear();
+        }
+    }
+}
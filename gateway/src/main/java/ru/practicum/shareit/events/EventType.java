@@ -0,0 +1,10 @@
+package ru.practicum.shareit.events;
+
+/**
+ * Типы событий server, на которые могут подписаться клиенты gateway
+ */
+public enum EventType {
+    REQUEST_ITEM_ADDED,
+    BOOKING_CREATED,
+    BOOKING_STATUS_CHANGED
+}
@@ -0,0 +1,139 @@
+package ru.practicum.shareit.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Соединение gateway с потоком событий одного узла server (GET /events), независимо от числа клиентов.
+ * При обрыве соединение восстанавливается; события, пришедшие в server за время обрыва, не доставляются,
+ * клиенты получают актуальное состояние обычными запросами. Server присылает heartbeat, поэтому долгая тишина
+ * означает зависшее соединение, и оно закрывается.
+ * Номера событий уникальны только в пределах узла, поэтому к ним добавляется префикс источника
+ */
+@Slf4j
+public class ServerEventSource {
+    private final EventHub eventHub;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final HttpRequest request;
+    private final String idPrefix;
+    private final Duration reconnectDelay;
+    private final Duration idleTimeout;
+    private final Thread reader;
+    private volatile boolean running = true;
+    private volatile Stream<String> lines;
+    private volatile long lastLineNanos = System.nanoTime();
+
+    public ServerEventSource(EventHub eventHub, ObjectMapper objectMapper, String serverUrl, String idPrefix,
+                             Duration reconnectDelay, Duration idleTimeout) {
+        this.eventHub = eventHub;
+        this.objectMapper = objectMapper;
+        this.request = HttpRequest.newBuilder(URI.create(serverUrl + "/events"))
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .timeout(idleTimeout)
+                .build();
+        this.idPrefix = idPrefix;
+        this.reconnectDelay = reconnectDelay;
+        this.idleTimeout = idleTimeout;
+        this.reader = new Thread(this::run, "server-events-" + serverUrl);
+        this.reader.setDaemon(true);
+    }
+
+    public void start() {
+        reader.start();
+    }
+
+    public void stop() {
+        running = false;
+        Stream<String> current = lines;
+        if (current != null) {
+            current.close();
+        }
+        reader.interrupt();
+    }
+
+    public void closeIfIdle() {
+        Stream<String> current = lines;
+        if (current != null && System.nanoTime() - lastLineNanos > idleTimeout.toNanos()) {
+            log.warn("Поток событий server {} молчит дольше {}, переподключение", request.uri(), idleTimeout);
+            lines = null;
+            current.close();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                HttpResponse<Stream<String>> response = httpClient.send(request, HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() == 200) {
+                    log.info("Подключен поток событий server {}", request.uri());
+                    lastLineNanos = System.nanoTime();
+                    lines = response.body();
+                    read(response.body().iterator());
+                    lines = null;
+                } else {
+                    response.body().close();
+                    log.warn("Поток событий server {} ответил статусом {}", request.uri(), response.statusCode());
+                }
+            } catch (IOException | RuntimeException e) {
+                if (running) {
+                    log.warn("Поток событий server {} недоступен: {}", request.uri(), e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                Thread.sleep(reconnectDelay.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Разбор text/event-stream: строки data: накапливаются до пустой строки, комментарии пропускаются
+     */
+    private void read(Iterator<String> iterator) {
+        List<String> data = new ArrayList<>();
+        while (running && iterator.hasNext()) {
+            String line = iterator.next();
+            lastLineNanos = System.nanoTime();
+            if (line.isEmpty()) {
+                if (!data.isEmpty()) {
+                    handle(String.join("\n", data));
+                    data.clear();
+                }
+            } else if (line.startsWith("data:")) {
+                data.add(line.substring(5));
+            }
+        }
+    }
+
+    private void handle(String data) {
+        try {
+            JsonNode event = objectMapper.readTree(data);
+            EventType type = EventType.valueOf(event.path("type").asText());
+            List<Long> userIds = new ArrayList<>();
+            event.path("userIds").forEach(userId -> userIds.add(userId.asLong()));
+            eventHub.dispatch(idPrefix + event.path("id").asText(), type, userIds, event.path("payload").toString());
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug("Пропущено событие server, которое не удалось разобрать: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Подписка gateway на потоки событий всех узлов server. Шина событий у каждого узла своя и рассылает только
+ * изменения, зафиксированные на нем, поэтому gateway держит по соединению на узел из shareit-server.event-urls
+ * (по умолчанию - единственный shareit-server.url) и объединяет события в EventHub
+ */
+@Component
+public class ServerEventSources {
+    private final List<ServerEventSource> sources = new ArrayList<>();
+
+    public ServerEventSources(EventHub eventHub,
+                              ObjectMapper objectMapper,
+                              @Value("${shareit-server.event-urls:${shareit-server.url}}") List<String> serverUrls,
+                              @Value("${shareit.events.reconnect-delay:PT5S}") Duration reconnectDelay,
+                              @Value("${shareit.events.upstream-idle-timeout:PT45S}") Duration idleTimeout) {
+        for (int i = 0; i < serverUrls.size(); i++) {
+            sources.add(new ServerEventSource(eventHub, objectMapper, serverUrls.get(i).trim(), i + "-",
+                    reconnectDelay, idleTimeout));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        sources.forEach(ServerEventSource::start);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sources.forEach(ServerEventSource::stop);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.events.heartbeat-interval:15000}")
+    public void closeIdle() {
+        sources.forEach(ServerEventSource::closeIfIdle);
+    }
+}
@@ -3,9 +3,11 @@ package ru.practicum.shareit.item;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentDtoRequest;
@@ -19,11 +21,12 @@ public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ClientHttpRequestFactory requestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .requestFactory(() -> requestFactory)
                         .build()
         );
     }
@@ -47,6 +50,10 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", userId, parameters);
     }
 
+    public ResponseEntity<StreamingResponseBody> export(long userId) {
+        return stream("/export", userId, MediaType.parseMediaType("application/x-ndjson"), null);
+    }
+
     public ResponseEntity<Object> searchByText(String text, Integer from, Integer size, long userId) {
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("text", text);
@@ -55,6 +62,13 @@ public class ItemClient extends BaseClient {
         return get("/search?text={text}&from={from}&size={size}", userId, parameters);
     }
 
+    public ResponseEntity<Object> getComments(long itemId, Long after, Integer size, long userId) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("after", after);
+        parameters.put("size", size);
+        return get("/" + itemId + "/comments?after={after}&size={size}", userId, parameters);
+    }
+
     public ResponseEntity<Object> createComment(CommentDtoRequest commentDtoRequest, long userId, long itemId) {
         return post("/" + itemId + "/comment", userId, commentDtoRequest);
     }
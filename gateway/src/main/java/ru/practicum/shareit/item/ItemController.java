@@ -5,12 +5,16 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.common.Marker;
 import ru.practicum.shareit.common.ValidateFromIfPresent;
 import ru.practicum.shareit.common.ValidateSizeIfPresent;
 import ru.practicum.shareit.item.dto.CommentDtoRequest;
 import ru.practicum.shareit.item.dto.ItemDtoRequest;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.PositiveOrZero;
+
 import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 
 @RestController
@@ -20,12 +24,13 @@ import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 @RequestMapping(path = "/items")
 public class ItemController {
     private static final String ITEM_ID = "itemId";
+    private static final int MAX_COMMENTS_PAGE_SIZE = 100;
     private final ItemClient itemClient;
 
     @PostMapping
     public ResponseEntity<Object> add(@RequestHeader(X_SHARER_USER_ID) long userId,
                                       @RequestBody @Validated(Marker.OnCreate.class) ItemDtoRequest itemDto) {
-        log.info("Получен запрос POST /items с параметрами userId = {}, dto = {}", userId, itemDto);
+        log.debug("Получен запрос POST /items с параметрами userId = {}, dto = {}", userId, itemDto);
         return itemClient.add(itemDto, userId);
     }
 
@@ -33,7 +38,7 @@ public class ItemController {
     public ResponseEntity<Object> update(@RequestHeader(X_SHARER_USER_ID) long userId,
                                          @PathVariable(ITEM_ID) Long id,
                                          @RequestBody @Validated(Marker.OnUpdate.class) ItemDtoRequest itemDtoRequest) {
-        log.info("Получен запрос PATCH /items/{itemId} с параметрами userId = {}, itemId = {}, dto = {}",
+        log.debug("Получен запрос PATCH /items/{itemId} с параметрами userId = {}, itemId = {}, dto = {}",
                 userId, id, itemDtoRequest);
         return itemClient.update(itemDtoRequest, id, userId);
     }
@@ -41,7 +46,7 @@ public class ItemController {
     @GetMapping("/{itemId}")
     public ResponseEntity<Object> get(@RequestHeader(X_SHARER_USER_ID) long userId,
                                       @PathVariable(ITEM_ID) long id) {
-        log.info("Получен запрос GET /items/{itemId} с параметрами userId = {}, itemId = {}", userId, id);
+        log.debug("Получен запрос GET /items/{itemId} с параметрами userId = {}, itemId = {}", userId, id);
         return itemClient.get(id, userId);
     }
 
@@ -49,26 +54,50 @@ public class ItemController {
     public ResponseEntity<Object> getAllByUser(@RequestHeader(X_SHARER_USER_ID) long userId,
                                                @RequestParam(required = false) @ValidateFromIfPresent Integer from,
                                                @RequestParam(required = false) @ValidateSizeIfPresent Integer size) {
-        log.info("Получен запрос GET /items?from={from}&size={size} с параметрами userId = {}, from = {}, size = {}",
+        log.debug("Получен запрос GET /items?from={from}&size={size} с параметрами userId = {}, from = {}, size = {}",
                 userId, from, size);
         return itemClient.getAllByUser(userId, from, size);
     }
 
+    /**
+     * GET /items/export — потоковая выгрузка всех вещей текущего пользователя в формате NDJSON
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(X_SHARER_USER_ID) long userId) {
+        log.debug("Получен запрос GET /items/export с параметрами userId = {}", userId);
+        return itemClient.export(userId);
+    }
+
     @GetMapping("/search")
     public ResponseEntity<Object> search(@RequestHeader(X_SHARER_USER_ID) long userId,
                                          @RequestParam String text,
                                          @RequestParam(required = false) @ValidateFromIfPresent Integer from,
                                          @RequestParam(required = false) @ValidateSizeIfPresent Integer size) {
-        log.info("Получен запрос GET /items/search?text={text}&from={from}&size={size} с параметрами " +
+        log.debug("Получен запрос GET /items/search?text={text}&from={from}&size={size} с параметрами " +
                 "userId = {}, text = {}, from = {}, size = {}", userId, text, from, size);
         return itemClient.searchByText(text, from, size, userId);
     }
 
+    /**
+     * GET /items/{itemId}/comments?after={commentId}&size={size} — отзывы о вещи, новые первыми.
+     * Следующая страница запрашивается с after, равным id последнего полученного отзыва. size не больше 100
+     */
+    @GetMapping("/{itemId}/comments")
+    public ResponseEntity<Object> getComments(@RequestHeader(X_SHARER_USER_ID) long userId,
+                                              @PathVariable(ITEM_ID) long itemId,
+                                              @RequestParam(required = false) @PositiveOrZero Long after,
+                                              @RequestParam(required = false) @ValidateSizeIfPresent
+                                              @Max(MAX_COMMENTS_PAGE_SIZE) Integer size) {
+        log.debug("Получен запрос GET /items/{itemId}/comments?after={after}&size={size} с параметрами " +
+                "userId = {}, itemId = {}, after = {}, size = {}", userId, itemId, after, size);
+        return itemClient.getComments(itemId, after, size, userId);
+    }
+
     @PostMapping("/{itemId}/comment")
     public ResponseEntity<Object> createComment(@RequestHeader(X_SHARER_USER_ID) long userId,
                                                 @PathVariable(ITEM_ID) long itemId,
                                                 @RequestBody @Validated({Marker.OnCreate.class}) CommentDtoRequest commentDtoRequest) {
-        log.info("Получен запрос POST /items/{itemId}/comment с параметрами userId = {}, itemId = {}, dto = {}",
+        log.debug("Получен запрос POST /items/{itemId}/comment с параметрами userId = {}, itemId = {}, dto = {}",
                 userId, itemId, commentDtoRequest);
         return itemClient.createComment(commentDtoRequest, userId, itemId);
     }
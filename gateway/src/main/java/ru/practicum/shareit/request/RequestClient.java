@@ -4,7 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
@@ -18,11 +18,12 @@ public class RequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
     @Autowired
-    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         ClientHttpRequestFactory requestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .requestFactory(() -> requestFactory)
                         .build()
         );
     }
@@ -35,12 +36,13 @@ public class RequestClient extends BaseClient {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> getAll(long userId, Integer from, Integer size) {
+    public ResponseEntity<Object> getAll(long userId, Integer from, Integer size, Long after) {
         Map<String, Object> parameters = new HashMap<>();
         parameters.put("from", from);
         parameters.put("size", size);
+        parameters.put("after", after);
 
-        return get("/all?from={from}&size={size}", userId, parameters);
+        return get("/all?from={from}&size={size}&after={after}", userId, parameters);
     }
 
     public ResponseEntity<Object> getById(long id, long userId) {
@@ -2,14 +2,21 @@ package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.common.Marker;
 import ru.practicum.shareit.common.ValidateFromIfPresent;
 import ru.practicum.shareit.common.ValidateSizeIfPresent;
+import ru.practicum.shareit.events.EventHub;
+import ru.practicum.shareit.events.EventType;
 import ru.practicum.shareit.request.dto.RequestDtoRequest;
 
+import javax.validation.constraints.PositiveOrZero;
+import java.util.Set;
+
 import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 
 @RestController
@@ -19,11 +26,12 @@ import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 @RequestMapping(path = "/requests")
 public class RequestController {
     private final RequestClient requestClient;
+    private final EventHub eventHub;
 
     @PostMapping
     public ResponseEntity<Object> add(@RequestHeader(X_SHARER_USER_ID) long requesterId,
                                       @RequestBody @Validated(Marker.OnCreate.class) RequestDtoRequest requestDtoRequest) {
-        log.info("Получен запрос POST /requests с параметрами userId = {}, dto = {}", requesterId, requestDtoRequest);
+        log.debug("Получен запрос POST /requests с параметрами userId = {}, dto = {}", requesterId, requestDtoRequest);
         return requestClient.add(requestDtoRequest, requesterId);
     }
 
@@ -32,25 +40,37 @@ public class RequestController {
      */
     @GetMapping
     public ResponseEntity<Object> getRequestsByUser(@RequestHeader(X_SHARER_USER_ID) long userId) {
-        log.info("Получен запрос GET /requests с параметрами userId = {}", userId);
+        log.debug("Получен запрос GET /requests с параметрами userId = {}", userId);
         return requestClient.getAllByUser(userId);
     }
 
     /**
-     * GET /requests/all?from={from}&size={size} — получить список запросов, созданных другими пользователями
+     * GET /requests/all?from={from}&size={size} — получить список запросов, созданных другими пользователями.
+     * GET /requests/all?after={requestId}&size={size} — следующая страница после запроса с id = after
      */
     @GetMapping("/all")
     public ResponseEntity<Object> getRequests(@RequestHeader(X_SHARER_USER_ID) long userId,
                                               @RequestParam(required = false) @ValidateFromIfPresent Integer from,
-                                              @RequestParam(required = false) @ValidateSizeIfPresent Integer size) {
-        log.info("Получен запрос GET /requests/all?from={from}&size={size} с параметрами userId = {}, from = {}, size = {}", userId, from, size);
-        return requestClient.getAll(userId, from, size);
+                                              @RequestParam(required = false) @ValidateSizeIfPresent Integer size,
+                                              @RequestParam(required = false) @PositiveOrZero Long after) {
+        log.debug("Получен запрос GET /requests/all?from={from}&size={size}&after={after} с параметрами userId = {}, " +
+                "from = {}, size = {}, after = {}", userId, from, size, after);
+        return requestClient.getAll(userId, from, size, after);
+    }
+
+    /**
+     * GET /requests/events — поток SSE с вещами, добавленными другими пользователями в ответ на свои запросы
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestHeader(X_SHARER_USER_ID) long userId) {
+        log.debug("Получен запрос GET /requests/events с параметрами userId = {}", userId);
+        return eventHub.subscribe(userId, Set.of(EventType.REQUEST_ITEM_ADDED));
     }
 
     @GetMapping("/{requestId}")
     public ResponseEntity<Object> getRequestsById(@RequestHeader(X_SHARER_USER_ID) long userId,
                                                   @PathVariable("requestId") long id) {
-        log.info("Получен запрос GET /requests/{requestId} с параметрами userId = {}, requestId = {}", userId, id);
+        log.debug("Получен запрос GET /requests/{requestId} с параметрами userId = {}, requestId = {}", userId, id);
         return requestClient.getById(id, userId);
     }
 }
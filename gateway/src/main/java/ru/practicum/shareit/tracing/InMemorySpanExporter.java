@@ -0,0 +1,46 @@
+package ru.practicum.shareit.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Получатель для тестов и локального запуска: хранит последние завершенные участки
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+public class InMemorySpanExporter implements SpanExporter {
+    private final Deque<Span> spans = new ArrayDeque<>();
+    private final int capacity;
+
+    public InMemorySpanExporter(@Value("${shareit.tracing.memory.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void export(Span span) {
+        synchronized (spans) {
+            if (spans.size() == capacity) {
+                spans.removeFirst();
+            }
+            spans.addLast(span);
+        }
+    }
+
+    public List<Span> getSpans() {
+        synchronized (spans) {
+            return new ArrayList<>(spans);
+        }
+    }
+
+    public void clear() {
+        synchronized (spans) {
+            spans.clear();
+        }
+    }
+}
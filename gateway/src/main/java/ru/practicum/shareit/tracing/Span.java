@@ -0,0 +1,93 @@
+package ru.practicum.shareit.tracing;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Участок трассы. Завершается вызовом end(), после чего текущим снова становится родительский участок
+ */
+@Getter
+public class Span implements AutoCloseable {
+    /**
+     * Участок вне трассы или в трассе, не попавшей в выборку: ничего не записывает
+     */
+    public static final Span NOOP = new Span(null, null, null, null, "noop", SpanKind.INTERNAL, false);
+
+    @JsonIgnore
+    private final Tracer tracer;
+    @JsonIgnore
+    private final Span parent;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final SpanKind kind;
+    @JsonIgnore
+    private final boolean sampled;
+    private final Instant start;
+    @JsonIgnore
+    private final long startNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private String name;
+    private long durationMicros;
+    private boolean error;
+
+    Span(Tracer tracer, Span parent, String traceId, String parentSpanId, String name, SpanKind kind, boolean sampled) {
+        this.tracer = tracer;
+        this.parent = parent;
+        this.traceId = traceId;
+        this.spanId = tracer == null ? null : TraceContext.randomSpanId();
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.sampled = sampled;
+        this.start = sampled ? Instant.now().truncatedTo(ChronoUnit.MICROS) : null;
+        this.startNanos = sampled ? System.nanoTime() : 0;
+    }
+
+    public Span name(String name) {
+        if (sampled) {
+            this.name = name;
+        }
+        return this;
+    }
+
+    public Span attribute(String key, Object value) {
+        if (sampled) {
+            attributes.put(key, value);
+        }
+        return this;
+    }
+
+    public Span error(Throwable e) {
+        if (sampled) {
+            error = true;
+            attributes.put("exception", e.getClass().getSimpleName());
+        }
+        return this;
+    }
+
+    @JsonIgnore
+    public TraceContext getContext() {
+        return new TraceContext(traceId, spanId, sampled);
+    }
+
+    public void end() {
+        if (tracer == null) {
+            return;
+        }
+        if (sampled) {
+            durationMicros = (System.nanoTime() - startNanos) / 1_000;
+        }
+        tracer.end(this);
+    }
+
+    @Override
+    public void close() {
+        end();
+    }
+}
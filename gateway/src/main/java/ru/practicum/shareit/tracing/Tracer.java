@@ -0,0 +1,69 @@
+package ru.practicum.shareit.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Создает участки трассы и хранит текущий участок потока. Решение о выборке принимается один раз
+ * на корневом участке: входящий traceparent задает его явно, иначе трасса попадает в выборку с вероятностью
+ * shareit.tracing.sampling-rate. Участки трасс вне выборки не создаются
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class Tracer {
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private final SpanExporter exporter;
+    private final double samplingRate;
+
+    public Tracer(SpanExporter exporter, @Value("${shareit.tracing.sampling-rate:0.01}") double samplingRate) {
+        this.exporter = exporter;
+        this.samplingRate = samplingRate;
+    }
+
+    public Span startServerSpan(String name, @Nullable String traceparent) {
+        TraceContext parent = TraceContext.parse(traceparent);
+        Span span;
+        if (parent != null) {
+            span = new Span(this, CURRENT.get(), parent.getTraceId(), parent.getSpanId(), name, SpanKind.SERVER,
+                    parent.isSampled());
+        } else {
+            span = new Span(this, CURRENT.get(), TraceContext.randomTraceId(), null, name, SpanKind.SERVER, sample());
+        }
+        CURRENT.set(span);
+        return span;
+    }
+
+    public Span startSpan(String name, SpanKind kind) {
+        Span parent = CURRENT.get();
+        if (parent == null || !parent.isSampled()) {
+            return Span.NOOP;
+        }
+        Span span = new Span(this, parent, parent.getTraceId(), parent.getSpanId(), name, kind, true);
+        CURRENT.set(span);
+        return span;
+    }
+
+    @Nullable
+    public Span current() {
+        return CURRENT.get();
+    }
+
+    void end(Span span) {
+        if (span.getParent() == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(span.getParent());
+        }
+        if (span.isSampled()) {
+            exporter.export(span);
+        }
+    }
+
+    private boolean sample() {
+        return samplingRate >= 1 || (samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < samplingRate);
+    }
+}
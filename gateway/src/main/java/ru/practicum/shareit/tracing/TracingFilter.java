@@ -0,0 +1,51 @@
+package ru.practicum.shareit.tracing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Корневой участок трассы на каждый HTTP-запрос, продолжает трассу из заголовка traceparent
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(value = "shareit.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingFilter extends OncePerRequestFilter {
+    private final Tracer tracer;
+
+    public TracingFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Span span = tracer.startServerSpan(request.getMethod(), request.getHeader(TraceContext.TRACEPARENT_HEADER));
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            span.name(request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern))
+                    .attribute("http.target", request.getRequestURI())
+                    .attribute("http.status_code", response.getStatus())
+                    .end();
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return true;
+    }
+}
@@ -3,13 +3,16 @@ package ru.practicum.shareit.user;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.user.dto.UserDtoRequest;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @Service
@@ -17,11 +20,12 @@ public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ClientHttpRequestFactory requestFactory) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
+                        .requestFactory(() -> requestFactory)
                         .build()
         );
     }
@@ -51,7 +55,14 @@ public class UserClient extends BaseClient {
         return get("/{userId}", id, parameters);
     }
 
-    public ResponseEntity<Object> getAll() {
-        return get("");
+    public ResponseEntity<Object> getAll(Long after, Integer size) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("after", after);
+        parameters.put("size", size);
+        return get("?after={after}&size={size}", null, parameters);
+    }
+
+    public ResponseEntity<StreamingResponseBody> export() {
+        return stream("/export", null, MediaType.parseMediaType("application/x-ndjson"), null);
     }
 }
@@ -5,45 +5,64 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.common.Marker;
+import ru.practicum.shareit.common.ValidateSizeIfPresent;
 import ru.practicum.shareit.user.dto.UserDtoRequest;
 
+import javax.validation.constraints.PositiveOrZero;
+
 @RestController
 @Slf4j
 @RequestMapping(path = "/users")
 @RequiredArgsConstructor
+@Validated
 public class UserController {
     private static final String USER_ID = "userId";
     private final UserClient userClient;
 
     @PostMapping
     public ResponseEntity<Object> create(@RequestBody @Validated({Marker.OnCreate.class}) UserDtoRequest userDtoRequest) {
-        log.info("Получен запрос POST /users с параметрами {}", userDtoRequest);
+        log.debug("Получен запрос POST /users с параметрами {}", userDtoRequest);
         return userClient.create(userDtoRequest);
     }
 
     @PatchMapping("/{userId}")
     public ResponseEntity<Object> update(@RequestBody @Validated({Marker.OnUpdate.class}) UserDtoRequest userDtoRequest,
                                          @PathVariable(USER_ID) long userId) {
-        log.info("Получен запрос PATCH /users/{userId} с параметрами dto = {} и userId = {}", userDtoRequest, userId);
+        log.debug("Получен запрос PATCH /users/{userId} с параметрами dto = {} и userId = {}", userDtoRequest, userId);
         return userClient.update(userDtoRequest, userId);
     }
 
     @DeleteMapping("/{userId}")
     public void delete(@PathVariable(USER_ID) long userId) {
-        log.info("Получен запрос DELETE /users/{userId} с userId = {}", userId);
+        log.debug("Получен запрос DELETE /users/{userId} с userId = {}", userId);
         userClient.deleteById(userId);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Object> get(@PathVariable long id) {
-        log.info("Получен запрос GET /users/{id} с параметрами id = {}", id);
+        log.debug("Получен запрос GET /users/{id} с параметрами id = {}", id);
         return userClient.getById(id);
     }
 
+    /**
+     * GET /users?after={after}&size={size} — постраничный список по ключу. Без size возвращается страница
+     * размера по умолчанию, полный список доступен только через /users/export
+     */
     @GetMapping
-    public ResponseEntity<Object> getAll() {
-        log.info("Получен запрос GET /users");
-        return userClient.getAll();
+    public ResponseEntity<Object> getAll(@RequestParam(required = false) @PositiveOrZero Long after,
+                                         @RequestParam(required = false) @ValidateSizeIfPresent Integer size) {
+        log.debug("Получен запрос GET /users?after={after}&size={size} с параметрами after = {}, size = {}", after, size);
+        return userClient.getAll(after, size);
+    }
+
+    /**
+     * GET /users/export — потоковая выгрузка всех пользователей в формате NDJSON
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        log.debug("Получен запрос GET /users/export");
+        return userClient.export();
     }
 }
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.client;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaseClientTest {
+    @Test
+    void acceptsGzipWithoutOrWithPositiveQuality() {
+        assertTrue(BaseClient.acceptsGzip("gzip"));
+        assertTrue(BaseClient.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(BaseClient.acceptsGzip("br;q=1.0, *;q=0.1"));
+    }
+
+    @Test
+    void rejectsGzipWithZeroQualityOrWhenAbsent() {
+        assertFalse(BaseClient.acceptsGzip(null));
+        assertFalse(BaseClient.acceptsGzip("identity"));
+        assertFalse(BaseClient.acceptsGzip("gzip;q=0"));
+        assertFalse(BaseClient.acceptsGzip("gzip; q=0.000, deflate"));
+        assertFalse(BaseClient.acceptsGzip("*, gzip;q=0"));
+        assertFalse(BaseClient.acceptsGzip("*;q=0"));
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.shareit.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Эндпоинты gateway, по которым собирается отдельная гистограмма задержек
+ */
+@Getter
+@RequiredArgsConstructor
+public enum Endpoint {
+    ITEM_GET("GET /items/{itemId}"),
+    ITEMS_BY_OWNER("GET /items"),
+    ITEM_SEARCH("GET /items/search"),
+    BOOKING_CREATE("POST /bookings"),
+    BOOKING_APPROVE("PATCH /bookings/{bookingId}"),
+    BOOKING_GET("GET /bookings/{bookingId}"),
+    BOOKINGS_BY_BOOKER("GET /bookings"),
+    BOOKINGS_BY_OWNER("GET /bookings/owner"),
+    REQUESTS_ALL("GET /requests/all");
+
+    private final String label;
+}
@@ -0,0 +1,43 @@
+package ru.practicum.shareit.loadtest;
+
+import lombok.Getter;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек (в микросекундах) и счетчики ошибок одного эндпоинта. Отброшенные запросы входят
+ * и в гистограмму, и в число ошибок
+ */
+public class EndpointStats {
+    @Getter
+    private final Histogram histogram = new ConcurrentHistogram(3);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public void record(long latencyNanos, boolean error) {
+        histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Запрос, не отправленный из-за предела одновременных запросов, учитывается как ошибка с задержкой latencyNanos,
+     * чтобы перегрузка не уменьшала число замеров и не улучшала p99
+     */
+    public void drop(long latencyNanos) {
+        record(latencyNanos, true);
+        dropped.increment();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
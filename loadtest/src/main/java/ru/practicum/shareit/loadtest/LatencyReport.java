@@ -0,0 +1,126 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводка задержек по прогонам, проверка доли ошибок и сравнение p99 с сохраненным эталоном
+ */
+@Slf4j
+public class LatencyReport {
+    private final ObjectMapper mapper;
+    private final ObjectNode report;
+
+    public LatencyReport(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.report = mapper.createObjectNode();
+    }
+
+    public void add(WorkloadMix mix, LoadTestConfig config, Map<Endpoint, EndpointStats> stats) {
+        ObjectNode mixNode = report.putObject(mix.name());
+        mixNode.put("rate", config.getRate());
+        mixNode.put("duration", config.getDuration().toString());
+        ObjectNode endpoints = mixNode.putObject("endpoints");
+        log.info("{}: {}", mix, String.format("%-28s %8s %7s %7s %9s %9s %9s %9s",
+                "endpoint", "count", "errors", "dropped", "p50, мс", "p90, мс", "p99, мс", "max, мс"));
+        for (Map.Entry<Endpoint, EndpointStats> entry : stats.entrySet()) {
+            Histogram histogram = entry.getValue().getHistogram();
+            if (histogram.getTotalCount() == 0 && entry.getValue().getDropped() == 0) {
+                continue;
+            }
+            ObjectNode node = endpoints.putObject(entry.getKey().getLabel());
+            node.put("count", histogram.getTotalCount());
+            node.put("errors", entry.getValue().getErrors());
+            node.put("dropped", entry.getValue().getDropped());
+            node.put("p50Micros", histogram.getValueAtPercentile(50));
+            node.put("p90Micros", histogram.getValueAtPercentile(90));
+            node.put("p99Micros", histogram.getValueAtPercentile(99));
+            node.put("p999Micros", histogram.getValueAtPercentile(99.9));
+            node.put("maxMicros", histogram.getMaxValue());
+            log.info("{}: {}", mix, String.format("%-28s %8d %7d %7d %9.2f %9.2f %9.2f %9.2f",
+                    entry.getKey().getLabel(), histogram.getTotalCount(), entry.getValue().getErrors(),
+                    entry.getValue().getDropped(), histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getMaxValue() / 1000.0));
+        }
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        mapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+        log.info("Отчет записан в {}", path);
+    }
+
+    /**
+     * Эталон хранит p99 каждого эндпоинта в каждом прогоне
+     */
+    public void writeBaseline(Path path) throws IOException {
+        ObjectNode baseline = mapper.createObjectNode();
+        report.fields().forEachRemaining(mix -> {
+            ObjectNode mixNode = baseline.putObject(mix.getKey());
+            mix.getValue().path("endpoints").fields().forEachRemaining(endpoint ->
+                    mixNode.put(endpoint.getKey(), endpoint.getValue().path("p99Micros").asLong()));
+        });
+        mapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), baseline);
+        log.info("Эталон записан в {}", path);
+    }
+
+    /**
+     * Возвращает описания регрессий: доля ответов 4xx/5xx, ошибок соединения, запросов без ответа
+     * и отброшенных при maxInFlight больше maxErrorRate.
+     * Быстрые ошибки занижают p99, поэтому без этой проверки прогон, где все запросы падают, проходил бы
+     */
+    public List<String> checkErrorRate(double maxErrorRate) {
+        List<String> regressions = new ArrayList<>();
+        report.fields().forEachRemaining(mix -> mix.getValue().path("endpoints").fields().forEachRemaining(endpoint -> {
+            long count = endpoint.getValue().path("count").asLong();
+            long errors = endpoint.getValue().path("errors").asLong();
+            if (count > 0 && errors > count * maxErrorRate) {
+                regressions.add(String.format("%s %s: %d ошибок (из них отброшено %d) из %d запросов "
+                                + "(%.2f%%, допустимо до %.2f%%)", mix.getKey(), endpoint.getKey(), errors,
+                        endpoint.getValue().path("dropped").asLong(), count, errors * 100.0 / count,
+                        maxErrorRate * 100));
+            }
+        }));
+        return regressions;
+    }
+
+    /**
+     * Возвращает описания регрессий: p99 больше эталонного с учетом допуска
+     */
+    public List<String> compareWithBaseline(Path path, double tolerance, long slackMicros) throws IOException {
+        JsonNode baseline = mapper.readTree(path.toFile());
+        List<String> regressions = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> mixes = report.fields();
+        while (mixes.hasNext()) {
+            Map.Entry<String, JsonNode> mix = mixes.next();
+            mix.getValue().path("endpoints").fields().forEachRemaining(endpoint -> {
+                JsonNode expected = baseline.path(mix.getKey()).path(endpoint.getKey());
+                if (expected.isMissingNode()) {
+                    return;
+                }
+                long actual = endpoint.getValue().path("p99Micros").asLong();
+                long limit = (long) (expected.asLong() * tolerance) + slackMicros;
+                if (actual > limit) {
+                    regressions.add(String.format("%s %s: p99 %.2f мс при эталоне %.2f мс (допустимо до %.2f мс)",
+                            mix.getKey(), endpoint.getKey(), actual / 1000.0, expected.asLong() / 1000.0,
+                            limit / 1000.0));
+                }
+            });
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,68 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Нагрузочный прогон gateway и server: заполнение данных, прогоны по наборам запросов
+ * и проверка доли ошибок и p99 относительно эталона. Код возврата 1 означает регрессию
+ */
+@Slf4j
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        ObjectMapper mapper = new ObjectMapper();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        ShareItApi api = new ShareItApi(client, mapper, config.getBaseUrl());
+        List<String> regressions;
+        try (LocalStack ignored = config.isStartStack() ? LocalStack.start(config, api) : null) {
+            regressions = run(config, mapper, api);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!regressions.isEmpty()) {
+            regressions.forEach(regression -> log.error("Регрессия: {}", regression));
+            System.exit(1);
+        }
+    }
+
+    private static List<String> run(LoadTestConfig config, ObjectMapper mapper, ShareItApi api) throws Exception {
+        PostmanCollection collection = PostmanCollection.load(config.getCollection(), mapper);
+        SeedData data = SeedData.create(api, collection, config);
+        Workload workload = new Workload(api, mapper, data, collection);
+        OpenLoopRunner runner = new OpenLoopRunner(api, workload, config);
+        LatencyReport report = new LatencyReport(mapper);
+        for (WorkloadMix mix : config.getMixes()) {
+            runner.warmUp(mix, config.getStackWarmup().dividedBy(config.getMixes().size()));
+        }
+        for (WorkloadMix mix : config.getMixes()) {
+            Map<Endpoint, EndpointStats> stats = runner.run(mix);
+            report.add(mix, config, stats);
+        }
+        report.write(config.getReport());
+        List<String> regressions = new ArrayList<>(report.checkErrorRate(config.getMaxErrorRate()));
+        if (config.isUpdateBaseline() || !Files.exists(config.getBaseline())) {
+            if (regressions.isEmpty()) {
+                report.writeBaseline(config.getBaseline());
+            }
+            return regressions;
+        }
+        regressions.addAll(report.compareWithBaseline(config.getBaseline(), config.getTolerance(),
+                config.getSlack().toNanos() / 1000));
+        return regressions;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.shareit.loadtest;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Параметры нагрузочного прогона, задаются системными свойствами shareit.loadtest.*
+ */
+@Value
+@Builder
+public class LoadTestConfig {
+    private static final String PREFIX = "shareit.loadtest.";
+
+    String baseUrl;
+    List<WorkloadMix> mixes;
+    double rate;
+    Duration stackWarmup;
+    Duration warmup;
+    Duration duration;
+    int maxInFlight;
+    Path collection;
+    Path baseline;
+    Path report;
+    double tolerance;
+    Duration slack;
+    double maxErrorRate;
+    boolean updateBaseline;
+    boolean startStack;
+    Path serverJar;
+    Path gatewayJar;
+    int owners;
+    int bookers;
+    int itemsPerOwner;
+    int bookingsPerBooker;
+
+    public static LoadTestConfig fromSystemProperties() {
+        return LoadTestConfig.builder()
+                .baseUrl(get("base-url", "http://localhost:8080"))
+                .mixes(Arrays.stream(get("mix", "SEARCH_HEAVY,BOOKING_HEAVY,OWNER_DASHBOARD").split(","))
+                        .map(String::trim)
+                        .map(WorkloadMix::valueOf)
+                        .collect(Collectors.toList()))
+                .rate(Double.parseDouble(get("rate", "50")))
+                .stackWarmup(Duration.parse(get("stack-warmup", "PT30S")))
+                .warmup(Duration.parse(get("warmup", "PT10S")))
+                .duration(Duration.parse(get("duration", "PT30S")))
+                .maxInFlight(Integer.parseInt(get("max-in-flight", "1000")))
+                .collection(Path.of(get("collection", "postman/sprint.json")))
+                .baseline(Path.of(get("baseline", "loadtest/baseline.json")))
+                .report(Path.of(get("report", "loadtest/target/loadtest-report.json")))
+                .tolerance(Double.parseDouble(get("tolerance", "1.5")))
+                .slack(Duration.parse(get("slack", "PT0.01S")))
+                .maxErrorRate(Double.parseDouble(get("max-error-rate", "0.01")))
+                .updateBaseline(Boolean.parseBoolean(get("update-baseline", "false")))
+                .startStack(Boolean.parseBoolean(get("start-stack", "false")))
+                .serverJar(Path.of(get("server-jar", "server/target/shareit-server-0.0.1-SNAPSHOT-exec.jar")))
+                .gatewayJar(Path.of(get("gateway-jar", "gateway/target/shareit-gateway-0.0.1-SNAPSHOT.jar")))
+                .owners(Integer.parseInt(get("seed.owners", "20")))
+                .bookers(Integer.parseInt(get("seed.bookers", "50")))
+                .itemsPerOwner(Integer.parseInt(get("seed.items-per-owner", "10")))
+                .bookingsPerBooker(Integer.parseInt(get("seed.bookings-per-booker", "10")))
+                .build();
+    }
+
+    private static String get(String name, String defaultValue) {
+        return System.getProperty(PREFIX + name, defaultValue);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.practicum.shareit.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запускает server с профилем ci (H2 в памяти) и gateway из собранных jar-файлов
+ */
+@Slf4j
+public class LocalStack implements AutoCloseable {
+    private static final String SERVER_URL = "http://localhost:9090";
+    private static final long STARTUP_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    private final List<Process> processes = new ArrayList<>();
+
+    public static LocalStack start(LoadTestConfig config, ShareItApi api) throws IOException, InterruptedException {
+        LocalStack stack = new LocalStack();
+        try {
+            Path logDir = config.getReport().toAbsolutePath().getParent();
+            Files.createDirectories(logDir);
+            stack.launch(new ProcessBuilder(java(), "-jar", config.getServerJar().toString(),
+                    "--spring.profiles.active=ci"), logDir.resolve("server.log"));
+            stack.await(api, SERVER_URL + "/actuator/health");
+            ProcessBuilder gateway = new ProcessBuilder(java(), "-jar", config.getGatewayJar().toString());
+            gateway.environment().put("SHAREIT_SERVER_URL", SERVER_URL);
+            stack.launch(gateway, logDir.resolve("gateway.log"));
+            stack.await(api, config.getBaseUrl() + "/actuator/health");
+            return stack;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            stack.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Process process : processes) {
+            process.destroy();
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void launch(ProcessBuilder builder, Path logFile) throws IOException {
+        log.info("Запуск {}, журнал {}", builder.command(), logFile);
+        processes.add(builder.redirectErrorStream(true).redirectOutput(logFile.toFile()).start());
+    }
+
+    private void await(ShareItApi api, String healthUrl) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (!api.isUp(healthUrl)) {
+            if (System.currentTimeMillis() > deadline || processes.stream().anyMatch(p -> !p.isAlive())) {
+                throw new IllegalStateException("Сервис " + healthUrl + " не запустился");
+            }
+            Thread.sleep(500);
+        }
+    }
+
+    private static String java() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+}
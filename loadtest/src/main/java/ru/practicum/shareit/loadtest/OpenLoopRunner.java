@@ -0,0 +1,135 @@
+package ru.practicum.shareit.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки с открытой моделью поступления запросов: моменты отправки задаются пуассоновским
+ * потоком с заданной интенсивностью и не зависят от времени ответа, а задержка отсчитывается
+ * от запланированного момента, поэтому замедление сервера не маскируется уменьшением нагрузки.
+ * Запросы, отброшенные при maxInFlight, записываются с задержкой тайм-аута запроса, а оставшиеся без ответа
+ * после ожидания - с задержкой на момент его окончания; и те и другие считаются ошибками
+ */
+@Slf4j
+public class OpenLoopRunner {
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ShareItApi api;
+    private final Workload workload;
+    private final LoadTestConfig config;
+
+    public OpenLoopRunner(ShareItApi api, Workload workload, LoadTestConfig config) {
+        this.api = api;
+        this.workload = workload;
+        this.config = config;
+    }
+
+    /**
+     * Прогон без записи результатов, чтобы JIT и пулы соединений вышли на рабочий режим до измерений
+     */
+    public void warmUp(WorkloadMix mix, Duration duration) {
+        run(mix, duration, Duration.ZERO);
+    }
+
+    public Map<Endpoint, EndpointStats> run(WorkloadMix mix) {
+        return run(mix, config.getWarmup(), config.getDuration());
+    }
+
+    private Map<Endpoint, EndpointStats> run(WorkloadMix mix, Duration warmup, Duration duration) {
+        Map<Endpoint, EndpointStats> stats = new EnumMap<>(Endpoint.class);
+        for (Endpoint endpoint : Endpoint.values()) {
+            stats.put(endpoint, new EndpointStats());
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        Set<Pending> pending = ConcurrentHashMap.newKeySet();
+        double meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / config.getRate();
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + warmup.toNanos();
+        long endNanos = measureFromNanos + duration.toNanos();
+        log.info("Прогон {}: {} запросов/с, прогрев {}, измерение {}", mix, config.getRate(), warmup, duration);
+        double intended = startNanos;
+        while (true) {
+            intended += -Math.log(1 - ThreadLocalRandom.current().nextDouble()) * meanIntervalNanos;
+            long intendedNanos = (long) intended;
+            if (intendedNanos >= endNanos) {
+                break;
+            }
+            parkUntil(intendedNanos);
+            Endpoint endpoint = workload.resolve(mix.next());
+            boolean measured = intendedNanos >= measureFromNanos;
+            if (inFlight.get() >= config.getMaxInFlight()) {
+                if (measured) {
+                    stats.get(endpoint).drop(ShareItApi.REQUEST_TIMEOUT.toNanos());
+                }
+                continue;
+            }
+            HttpRequest request = workload.request(endpoint);
+            Pending call = new Pending(stats.get(endpoint), intendedNanos, measured);
+            pending.add(call);
+            inFlight.incrementAndGet();
+            api.callAsync(request).whenComplete((response, e) -> {
+                long latencyNanos = System.nanoTime() - intendedNanos;
+                inFlight.decrementAndGet();
+                pending.remove(call);
+                call.record(latencyNanos, e != null || response.statusCode() >= 400);
+                if (e != null) {
+                    log.debug("Запрос {} завершился ошибкой", request.uri(), e);
+                } else {
+                    workload.onResponse(endpoint, response);
+                }
+            });
+        }
+        long drainUntil = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainUntil) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Прогон {}: не дождались ответа на {} запросов, они учтены как ошибки", mix, pending.size());
+            long nowNanos = System.nanoTime();
+            for (Pending call : pending) {
+                call.record(nowNanos - call.intendedNanos, true);
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Отправленный запрос. Записывается один раз: ответом или, если ответа не дождались, ошибкой
+     */
+    private static final class Pending {
+        private final EndpointStats stats;
+        private final long intendedNanos;
+        private final boolean measured;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        private Pending(EndpointStats stats, long intendedNanos, boolean measured) {
+            this.stats = stats;
+            this.intendedNanos = intendedNanos;
+            this.measured = measured;
+        }
+
+        private void record(long latencyNanos, boolean error) {
+            if (measured && recorded.compareAndSet(false, true)) {
+                stats.record(latencyNanos, error);
+            }
+        }
+    }
+
+    private static void parkUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Извлекает из postman-коллекции шаблоны вещей, поисковые запросы и описания запросов вещей,
+ * которые используются для заполнения данных и построения нагрузки
+ */
+@Slf4j
+@Getter
+public class PostmanCollection {
+    private final List<JsonNode> itemTemplates = new ArrayList<>();
+    private final Set<String> searchTexts = new LinkedHashSet<>();
+    private final Set<String> requestDescriptions = new LinkedHashSet<>();
+
+    private final ObjectMapper mapper;
+
+    public PostmanCollection(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public static PostmanCollection load(Path path, ObjectMapper mapper) throws IOException {
+        PostmanCollection collection = new PostmanCollection(mapper);
+        collection.walk(mapper.readTree(path.toFile()).path("item"));
+        if (collection.itemTemplates.isEmpty() || collection.searchTexts.isEmpty()) {
+            throw new IllegalStateException("В коллекции " + path + " не найдены запросы POST /items и GET /items/search");
+        }
+        log.info("Из коллекции {} загружено шаблонов вещей: {}, поисковых запросов: {}",
+                path, collection.itemTemplates.size(), collection.searchTexts.size());
+        return collection;
+    }
+
+    private void walk(JsonNode items) {
+        for (JsonNode item : items) {
+            if (item.has("item")) {
+                walk(item.get("item"));
+                continue;
+            }
+            JsonNode request = item.path("request");
+            String method = request.path("method").asText();
+            JsonNode url = request.path("url");
+            String raw = url.isTextual() ? url.asText() : url.path("raw").asText();
+            String path = raw.replace("{{baseUrl}}", "");
+            if ("POST".equals(method) && "/items".equals(path)) {
+                readBody(request).filter(body -> body.has("name") && body.has("description"))
+                        .ifPresent(itemTemplates::add);
+            } else if ("POST".equals(method) && "/requests".equals(path)) {
+                readBody(request).map(body -> body.path("description").asText())
+                        .filter(description -> !description.isBlank())
+                        .ifPresent(requestDescriptions::add);
+            } else if ("GET".equals(method) && path.startsWith("/items/search?text=")) {
+                String text = URLDecoder.decode(path.substring("/items/search?text=".length()), StandardCharsets.UTF_8);
+                if (!text.isBlank()) {
+                    searchTexts.add(text);
+                }
+            }
+        }
+    }
+
+    private Optional<JsonNode> readBody(JsonNode request) {
+        String raw = request.path("body").path("raw").asText();
+        if (raw.isBlank() || raw.contains("{{")) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(mapper.readTree(raw));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Данные, созданные перед прогоном: владельцы с вещами по шаблонам коллекции, арендаторы и их бронирования
+ */
+@Slf4j
+@Getter
+public class SeedData {
+    private final List<Long> ownerIds = new ArrayList<>();
+    private final List<Long> bookerIds = new ArrayList<>();
+    private final List<Long> itemIds = new ArrayList<>();
+    private final List<Long> bookingIds = new ArrayList<>();
+    private final Map<Long, Long> itemOwners = new ConcurrentHashMap<>();
+    private final Map<Long, Long> bookingParticipants = new ConcurrentHashMap<>();
+    private final Queue<long[]> waitingBookings = new ConcurrentLinkedQueue<>();
+
+    public static SeedData create(ShareItApi api, PostmanCollection collection, LoadTestConfig config)
+            throws IOException, InterruptedException {
+        SeedData data = new SeedData();
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        List<JsonNode> templates = collection.getItemTemplates();
+        for (int i = 0; i < config.getOwners(); i++) {
+            long ownerId = data.createUser(api, "owner", i, runId);
+            data.ownerIds.add(ownerId);
+            for (int j = 0; j < config.getItemsPerOwner(); j++) {
+                ObjectNode item = templates.get((i + j) % templates.size()).deepCopy();
+                item.put("name", item.get("name").asText() + " " + i + "-" + j);
+                item.put("available", true);
+                item.remove(List.of("id", "requestId"));
+                long itemId = api.call(api.post("/items", ownerId, item)).get("id").asLong();
+                data.itemIds.add(itemId);
+                data.itemOwners.put(itemId, ownerId);
+            }
+        }
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < config.getBookers(); i++) {
+            long bookerId = data.createUser(api, "booker", i, runId);
+            data.bookerIds.add(bookerId);
+            for (int j = 0; j < config.getBookingsPerBooker(); j++) {
+                long itemId = data.randomItemId();
+                long bookingId = api.call(api.createBooking(bookerId, itemId, start.plusDays(j))).get("id").asLong();
+                data.bookingIds.add(bookingId);
+                data.bookingParticipants.put(bookingId, bookerId);
+                if (j % 2 == 0) {
+                    api.call(api.approveBooking(data.itemOwners.get(itemId), bookingId));
+                } else {
+                    data.waitingBookings.add(new long[]{bookingId, data.itemOwners.get(itemId)});
+                }
+            }
+        }
+        for (String description : collection.getRequestDescriptions()) {
+            api.call(api.post("/requests", data.randomBookerId(), Map.of("description", description)));
+        }
+        log.info("Созданы данные для прогона: владельцев {}, вещей {}, арендаторов {}, бронирований {}",
+                data.ownerIds.size(), data.itemIds.size(), data.bookerIds.size(), data.bookingIds.size());
+        return data;
+    }
+
+    public long randomOwnerId() {
+        return random(ownerIds);
+    }
+
+    public long randomBookerId() {
+        return random(bookerIds);
+    }
+
+    public long randomItemId() {
+        return random(itemIds);
+    }
+
+    public long randomBookingId() {
+        return random(bookingIds);
+    }
+
+    private long createUser(ShareItApi api, String role, int index, String runId) throws IOException, InterruptedException {
+        String name = role + index;
+        return api.call(api.post("/users", 0, Map.of(
+                "name", name,
+                "email", name + "-" + runId + "@loadtest.ru"))).get("id").asLong();
+    }
+
+    private static long random(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Обращения к gateway: синхронные для заполнения данных и асинхронные для нагрузки
+ */
+public class ShareItApi {
+    private static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final String baseUrl;
+
+    public ShareItApi(HttpClient client, ObjectMapper mapper, String baseUrl) {
+        this.client = client;
+        this.mapper = mapper;
+        this.baseUrl = baseUrl;
+    }
+
+    public HttpRequest get(String path, long userId) {
+        return request(path, userId).GET().build();
+    }
+
+    public HttpRequest post(String path, long userId, Object body) {
+        return request(path, userId)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(toJson(body)))
+                .build();
+    }
+
+    public HttpRequest patch(String path, long userId) {
+        return request(path, userId).method("PATCH", HttpRequest.BodyPublishers.noBody()).build();
+    }
+
+    public HttpRequest createBooking(long bookerId, long itemId, LocalDateTime start) {
+        return post("/bookings", bookerId, Map.of(
+                "itemId", itemId,
+                "start", start.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                "end", start.plusDays(1).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)));
+    }
+
+    public HttpRequest approveBooking(long ownerId, long bookingId) {
+        return patch("/bookings/" + bookingId + "?approved=true", ownerId);
+    }
+
+    public JsonNode call(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException(request.method() + " " + request.uri() + " вернул "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return mapper.readTree(response.body());
+    }
+
+    public CompletableFuture<HttpResponse<String>> callAsync(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    public boolean isUp(String url) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(1)).GET().build();
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private HttpRequest.Builder request(String path, long userId) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .header(USER_ID_HEADER, String.valueOf(userId));
+    }
+
+    private String toJson(Object body) {
+        try {
+            return mapper.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.shareit.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Строит запрос для выбранного эндпоинта на основе заполненных данных
+ */
+public class Workload {
+    private static final List<String> STATES = List.of("ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED");
+
+    private final ShareItApi api;
+    private final ObjectMapper mapper;
+    private final SeedData data;
+    private final List<String> searchTexts;
+    private final AtomicLong bookingDay = new AtomicLong(1_000);
+
+    public Workload(ShareItApi api, ObjectMapper mapper, SeedData data, PostmanCollection collection) {
+        this.api = api;
+        this.mapper = mapper;
+        this.data = data;
+        this.searchTexts = List.copyOf(collection.getSearchTexts());
+    }
+
+    /**
+     * Подтверждать можно только бронирования в статусе WAITING, пока их нет - создаем новые
+     */
+    public Endpoint resolve(Endpoint endpoint) {
+        if (endpoint == Endpoint.BOOKING_APPROVE && data.getWaitingBookings().isEmpty()) {
+            return Endpoint.BOOKING_CREATE;
+        }
+        return endpoint;
+    }
+
+    public HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (endpoint) {
+            case ITEM_GET:
+                long itemId = data.randomItemId();
+                long viewerId = random.nextBoolean() ? data.getItemOwners().get(itemId) : data.randomBookerId();
+                return api.get("/items/" + itemId, viewerId);
+            case ITEMS_BY_OWNER:
+                return api.get("/items?from=0&size=20", data.randomOwnerId());
+            case ITEM_SEARCH:
+                String text = searchTexts.get(random.nextInt(searchTexts.size()));
+                return api.get("/items/search?text=" + URLEncoder.encode(text, StandardCharsets.UTF_8) + "&from=0&size=20",
+                        data.randomBookerId());
+            case BOOKING_CREATE:
+                return api.createBooking(data.randomBookerId(), data.randomItemId(),
+                        LocalDateTime.now().plusDays(bookingDay.incrementAndGet()));
+            case BOOKING_APPROVE:
+                long[] waiting = data.getWaitingBookings().remove();
+                return api.approveBooking(waiting[1], waiting[0]);
+            case BOOKING_GET:
+                long bookingId = data.randomBookingId();
+                return api.get("/bookings/" + bookingId, data.getBookingParticipants().get(bookingId));
+            case BOOKINGS_BY_BOOKER:
+                return api.get("/bookings?state=" + randomState() + "&from=0&size=20", data.randomBookerId());
+            case BOOKINGS_BY_OWNER:
+                return api.get("/bookings/owner?state=" + randomState() + "&from=0&size=20", data.randomOwnerId());
+            case REQUESTS_ALL:
+                return api.get("/requests/all?from=0&size=20", data.randomOwnerId());
+            default:
+                throw new IllegalArgumentException("Неизвестный эндпоинт " + endpoint);
+        }
+    }
+
+    public void onResponse(Endpoint endpoint, HttpResponse<String> response) {
+        if (endpoint != Endpoint.BOOKING_CREATE || response.statusCode() / 100 != 2) {
+            return;
+        }
+        try {
+            JsonNode booking = mapper.readTree(response.body());
+            long itemId = booking.path("item").path("id").asLong();
+            data.getWaitingBookings().add(new long[]{booking.get("id").asLong(), data.getItemOwners().get(itemId)});
+        } catch (IOException e) {
+            throw new IllegalStateException("Некорректный ответ на создание бронирования: " + response.body(), e);
+        }
+    }
+
+    private static String randomState() {
+        return STATES.get(ThreadLocalRandom.current().nextInt(STATES.size()));
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.loadtest;
+
+import lombok.Getter;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Взвешенные наборы запросов, моделирующие типичные сценарии использования
+ */
+public enum WorkloadMix {
+    SEARCH_HEAVY(Map.of(
+            Endpoint.ITEM_SEARCH, 70,
+            Endpoint.ITEM_GET, 20,
+            Endpoint.ITEMS_BY_OWNER, 10)),
+    BOOKING_HEAVY(Map.of(
+            Endpoint.BOOKING_CREATE, 30,
+            Endpoint.BOOKING_APPROVE, 20,
+            Endpoint.BOOKINGS_BY_BOOKER, 30,
+            Endpoint.BOOKING_GET, 20)),
+    OWNER_DASHBOARD(Map.of(
+            Endpoint.BOOKINGS_BY_OWNER, 40,
+            Endpoint.ITEMS_BY_OWNER, 30,
+            Endpoint.ITEM_GET, 20,
+            Endpoint.REQUESTS_ALL, 10));
+
+    @Getter
+    private final Map<Endpoint, Integer> weights;
+
+    private final Endpoint[] endpoints;
+
+    private final int[] cumulativeWeights;
+
+    WorkloadMix(Map<Endpoint, Integer> weights) {
+        this.weights = new EnumMap<>(weights);
+        this.endpoints = this.weights.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += this.weights.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public Endpoint next() {
+        int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        return endpoints[endpoints.length - 1];
+    }
+}
@@ -35,4 +35,8 @@ public class Booking {
 
     @Enumerated(EnumType.STRING)
     private BookingStatus status;
+
+    @Enumerated(EnumType.ORDINAL)
+    @Column(name = "time_state")
+    private BookingTimeState timeState;
 }
@@ -0,0 +1,12 @@
+package ru.practicum.shareit.booking;
+
+/**
+ * Результат пакетного подтверждения для отдельного бронирования
+ */
+public enum BookingApprovalOutcome {
+    APPROVED,
+    REJECTED,
+    NOT_FOUND,
+    NOT_OWNER,
+    NOT_WAITING
+}
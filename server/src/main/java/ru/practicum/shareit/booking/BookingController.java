@@ -2,10 +2,18 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingApprovalRequest;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.booking.dto.BookingDtoRequest;
+import ru.practicum.shareit.booking.counter.BookingCounterService;
 import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.common.NdjsonExporter;
+import ru.practicum.shareit.user.UserExistenceGuard;
 import ru.practicum.shareit.user.UserService;
 import ru.practicum.shareit.user.model.User;
 
@@ -22,12 +30,15 @@ public class BookingController {
     private static final String BOOKING_ID = "bookingId";
     private static final String ALL = "ALL";
     private final BookingService bookingService;
+    private final BookingCounterService bookingCounterService;
     private final UserService userService;
+    private final UserExistenceGuard userExistenceGuard;
+    private final NdjsonExporter ndjsonExporter;
 
     @PostMapping
     public BookingDtoResponse add(@RequestHeader(X_SHARER_USER_ID) long userId,
                                   @RequestBody BookingDtoRequest bookingDto) {
-        log.info("Получен запрос POST /bookings с параметрами userId = {}, dto = {}", userId, bookingDto);
+        log.debug("Получен запрос POST /bookings с параметрами userId = {}, dto = {}", userId, bookingDto);
         User booker = userService.getById(userId);
         Booking createdBooking = bookingService.create(BookingMapper.toBookingCreateRequest(bookingDto), booker);
         return BookingMapper.toBookingDtoResponse(createdBooking);
@@ -41,11 +52,34 @@ public class BookingController {
     public BookingDtoResponse approve(@RequestHeader(X_SHARER_USER_ID) long userId,
                                       @PathVariable(BOOKING_ID) long bookingId,
                                       @RequestParam String approved) {
-        log.info("Получен запрос PATCH /bookings/{bookingId}?approved={approved} с параметрами userId = {}, bookingId = {}, approved = {}",
+        log.debug("Получен запрос PATCH /bookings/{bookingId}?approved={approved} с параметрами userId = {}, bookingId = {}, approved = {}",
                 userId, bookingId, approved);
         return BookingMapper.toBookingDtoResponse(bookingService.approve(bookingId, Boolean.valueOf(approved), userId));
     }
 
+    /**
+     * Пакетное подтверждение или отклонение запросов на бронирование с результатом по каждому бронированию
+     * PATCH /bookings/approve
+     */
+    @PatchMapping("/approve")
+    public List<BookingApprovalResultDto> approveAll(@RequestHeader(X_SHARER_USER_ID) long userId,
+                                                     @RequestBody BookingApprovalRequest request) {
+        log.debug("Получен запрос PATCH /bookings/approve с параметрами userId = {}, dto = {}", userId, request);
+        userExistenceGuard.requireExists(userId);
+        return bookingService.approveAll(request.getDecisions(), userId);
+    }
+
+    /**
+     * Количество бронирований текущего пользователя по состояниям: как автора бронирований и как владельца вещей
+     * GET /bookings/summary
+     */
+    @GetMapping("/summary")
+    public BookingSummaryDto getSummary(@RequestHeader(X_SHARER_USER_ID) long userId) {
+        log.debug("Получен запрос GET /bookings/summary с параметрами userId = {}", userId);
+        userExistenceGuard.requireExists(userId);
+        return bookingCounterService.getSummary(userId);
+    }
+
     /**
      * Получение данных о конкретном бронировании
      * GET /bookings/{bookingId}
@@ -53,7 +87,7 @@ public class BookingController {
     @GetMapping("/{bookingId}")
     public BookingDtoResponse get(@RequestHeader(X_SHARER_USER_ID) long userId,
                                   @PathVariable(BOOKING_ID) long bookingId) {
-        log.info("Получен запрос GET /bookings/{bookingId} с параметрами userId = {}, bookingId = {}", userId, bookingId);
+        log.debug("Получен запрос GET /bookings/{bookingId} с параметрами userId = {}, bookingId = {}", userId, bookingId);
         return BookingMapper.toBookingDtoResponse(bookingService.get(bookingId, userId));
     }
 
@@ -66,9 +100,9 @@ public class BookingController {
                                                          @RequestParam(defaultValue = ALL) String state,
                                                          @RequestParam(required = false) Integer from,
                                                          @RequestParam(required = false) Integer size) {
-        log.info("Получен запрос GET /bookings?state={state}&from={from}&size={size} с параметрами " +
+        log.debug("Получен запрос GET /bookings?state={state}&from={from}&size={size} с параметрами " +
                 "userId = {}, state = {}, from = {}, size = {}", userId, state, from, size);
-        userService.getById(userId);
+        userExistenceGuard.requireExists(userId);
         return BookingMapper.toBookingDtoResponseList(bookingService.getAllBookingsByUser(userId, state, from, size));
     }
 
@@ -81,11 +115,40 @@ public class BookingController {
                                                               @RequestParam(defaultValue = ALL) String state,
                                                               @RequestParam(required = false) Integer from,
                                                               @RequestParam(required = false) Integer size) {
-        log.info("Получен запрос GET /bookings/owner?state={state}&from={from}&size={size} с параметрами " +
+        log.debug("Получен запрос GET /bookings/owner?state={state}&from={from}&size={size} с параметрами " +
                 "userId = {}, state = {}, from = {}, size = {}", itemOwnerId, state, from, size);
-        userService.getById(itemOwnerId);
+        userExistenceGuard.requireExists(itemOwnerId);
         return BookingMapper.toBookingDtoResponseList(bookingService.getAllBookingsByItemOwner(itemOwnerId, state,
                 from, size));
     }
 
+    /**
+     * Потоковая выгрузка всех бронирований текущего пользователя в формате NDJSON
+     * GET /bookings/export?state={state}
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByUser(@RequestHeader(X_SHARER_USER_ID) long userId,
+                                                                      @RequestParam(defaultValue = ALL) String state) {
+        log.debug("Получен запрос GET /bookings/export?state={state} с параметрами userId = {}, state = {}",
+                userId, state);
+        BookingFilterState filterState = BookingFilterState.parse(state);
+        userExistenceGuard.requireExists(userId);
+        return ndjsonExporter.export(() -> bookingService.streamAllBookingsByUser(userId, filterState),
+                BookingMapper::toBookingDtoResponse);
+    }
+
+    /**
+     * Потоковая выгрузка бронирований для всех вещей текущего пользователя в формате NDJSON
+     * GET /bookings/owner/export?state={state}
+     */
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportBookingsByItemOwner(@RequestHeader(X_SHARER_USER_ID) long itemOwnerId,
+                                                                           @RequestParam(defaultValue = ALL) String state) {
+        log.debug("Получен запрос GET /bookings/owner/export?state={state} с параметрами userId = {}, state = {}",
+                itemOwnerId, state);
+        BookingFilterState filterState = BookingFilterState.parse(state);
+        userExistenceGuard.requireExists(itemOwnerId);
+        return ndjsonExporter.export(() -> bookingService.streamAllBookingsByItemOwner(itemOwnerId, filterState),
+                BookingMapper::toBookingDtoResponse);
+    }
 }
@@ -1,5 +1,7 @@
 package ru.practicum.shareit.booking;
 
+import ru.practicum.shareit.booking.exception.UnsupportedStatusException;
+
 public enum BookingFilterState {
     ALL("ALL"),
     CURRENT("CURRENT"),
@@ -24,5 +26,15 @@ public enum BookingFilterState {
         }
         return result;
     }
-}
 
+    /**
+     * Состояние из параметра запроса, UnsupportedStatusException для неизвестного значения
+     */
+    public static BookingFilterState parse(String value) {
+        BookingFilterState state = findByValue(value);
+        if (state == null) {
+            throw new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS");
+        }
+        return state;
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.booking;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.common.JobLockService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Фоновое истечение бронирований: WAITING, дата начала которых уже прошла, переводятся в CANCELED.
+ * Обработка идет пачками по id с водяной отметкой, каждая пачка - отдельная транзакция
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "shareit.booking.lifecycle.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingLifecycleScheduler {
+    private static final String JOB_NAME = "booking-expire-waiting";
+    private final BookingRepository bookingRepository;
+    private final BookingService bookingService;
+    private final JobLockService jobLockService;
+    private final int batchSize;
+    private final Duration lockAtMostFor;
+    private final DistributionSummary expiredPerPass;
+    private final Counter expiredTotal;
+
+    public BookingLifecycleScheduler(BookingRepository bookingRepository,
+                                     BookingService bookingService,
+                                     JobLockService jobLockService,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${shareit.booking.lifecycle.batch-size:500}") int batchSize,
+                                     @Value("${shareit.booking.lifecycle.lock-at-most-for:PT5M}") Duration lockAtMostFor) {
+        this.bookingRepository = bookingRepository;
+        this.bookingService = bookingService;
+        this.jobLockService = jobLockService;
+        this.batchSize = batchSize;
+        this.lockAtMostFor = lockAtMostFor;
+        this.expiredPerPass = DistributionSummary.builder("shareit.bookings.expired.pass")
+                .description("Количество бронирований, переведенных в CANCELED за один проход")
+                .register(meterRegistry);
+        this.expiredTotal = Counter.builder("shareit.bookings.expired")
+                .description("Всего бронирований, переведенных в CANCELED")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.lifecycle.fixed-delay:60000}")
+    public void expireWaitingBookings() {
+        if (!jobLockService.tryLock(JOB_NAME, lockAtMostFor)) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Pageable batch = PageRequest.of(0, batchSize);
+            long watermark = 0;
+            List<Long> ids;
+            do {
+                ids = bookingRepository.findIdsByStatusAndStartBefore(BookingStatus.WAITING, now, watermark, batch);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                int expired = bookingService.expire(ids);
+                expiredPerPass.record(expired);
+                expiredTotal.increment(expired);
+                watermark = ids.get(ids.size() - 1);
+                log.debug("Переведено в CANCELED {} бронирований, водяная отметка id = {}", expired, watermark);
+            } while (ids.size() == batchSize);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+}
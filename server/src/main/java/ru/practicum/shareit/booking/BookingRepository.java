@@ -1,15 +1,138 @@
 package ru.practicum.shareit.booking;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+import static org.hibernate.jpa.QueryHints.HINT_NATIVE_LOCKMODE;
+
 public interface BookingRepository extends JpaRepository<Booking, Long>, QuerydslPredicateExecutor<Booking> {
     List<Booking> findByItem_Id(long itemId);
 
     List<Booking> findByItemInAndStatusOrderByStartAsc(List<Item> items, BookingStatus status);
 
     List<Booking> findByItemAndStatusOrderByStartAsc(Item item, BookingStatus status);
+
+    @Query(" select b.id from Booking b " +
+            "where b.status = ?1 and b.start < ?2 and b.id > ?3 order by b.id asc")
+    List<Long> findIdsByStatusAndStartBefore(BookingStatus status, LocalDateTime start, long afterId, Pageable page);
+
+    /**
+     * Автор завершенного до now бронирования вещи, если такое есть. Условие проверяется по индексу
+     * idx_bookings_booker_item_end, а сам пользователь читается по первичному ключу в том же запросе.
+     * Начало раньше окончания, поэтому условие по start_date только отсекает будущие секции
+     */
+    @Query(" select u from Booking b join b.booker u " +
+            "where b.booker.id = ?1 and b.item.id = ?2 and b.end < ?3 and b.start < ?3")
+    List<User> findBookerWithFinishedBooking(long bookerId, long itemId, LocalDateTime now, Pageable page);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(" select b.id from Booking b " +
+            "where b.id in ?1 and b.status = ?2")
+    List<Long> lockIdsByStatus(Collection<Long> ids, BookingStatus status);
+
+    /**
+     * То же с условием по датам начала starts, по которому отсекаются секции
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query(" select b.id from Booking b " +
+            "where b.id in ?1 and b.start in ?2 and b.status = ?3")
+    List<Long> lockIdsByStatus(Collection<Long> ids, Collection<LocalDateTime> starts, BookingStatus status);
+
+    /**
+     * Бронирования вместе с вещью, ее владельцем и автором одним запросом, без блокировки
+     */
+    @Query(" select b from Booking b join fetch b.item i join fetch i.owner join fetch b.booker " +
+            "where b.id in ?1")
+    List<Booking> findWithParticipants(Collection<Long> ids);
+
+    @Query(" select b from Booking b join fetch b.item i join fetch i.owner join fetch b.booker " +
+            "where b.id in ?1 and b.start in ?2")
+    List<Booking> findWithParticipants(Collection<Long> ids, Collection<LocalDateTime> starts);
+
+    /**
+     * Бронирования вместе с вещью, ее владельцем и автором одним запросом. До конца транзакции блокируются
+     * только строки бронирований, чтобы проверенный статус не изменился до обновления, а вещи и пользователи
+     * оставались доступны другим транзакциям
+     */
+    @QueryHints(@QueryHint(name = HINT_NATIVE_LOCKMODE + ".b", value = "PESSIMISTIC_WRITE"))
+    @Query(" select b from Booking b join fetch b.item i join fetch i.owner join fetch b.booker " +
+            "where b.id in ?1")
+    List<Booking> lockWithParticipants(Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_NATIVE_LOCKMODE + ".b", value = "PESSIMISTIC_WRITE"))
+    @Query(" select b from Booking b join fetch b.item i join fetch i.owner join fetch b.booker " +
+            "where b.id in ?1 and b.start in ?2")
+    List<Booking> lockWithParticipants(Collection<Long> ids, Collection<LocalDateTime> starts);
+
+    /**
+     * Бронирования с отметкой state (FUTURE), начавшиеся к now, под блокировкой строк. Строки, заблокированные
+     * другими транзакциями, пропускаются (lock.timeout = -2 - SKIP LOCKED). Поиск идет по индексу
+     * idx_bookings_state_start
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query(" select b.id from Booking b " +
+            "where b.timeState = ?1 and b.start <= ?2")
+    List<Long> lockStartedIds(BookingTimeState state, LocalDateTime now, Pageable page);
+
+    /**
+     * Бронирования с отметкой state (CURRENT), закончившиеся к now, под блокировкой строк с пропуском
+     * заблокированных. По индексу idx_bookings_state_start перебираются только текущие бронирования
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query(" select b.id from Booking b " +
+            "where b.timeState = ?1 and b.start <= ?2 and b.end <= ?2")
+    List<Long> lockEndedIds(BookingTimeState state, LocalDateTime now, Pageable page);
+
+    /**
+     * Отметки time_state на момент now для начавшихся бронирований ids
+     */
+    @Modifying
+    @Query(" update Booking b set b.timeState = case when b.end > ?2 then ?3 else ?4 end " +
+            "where b.id in ?1")
+    int updateTimeState(Collection<Long> ids, LocalDateTime now, BookingTimeState current, BookingTimeState past);
+
+    @Modifying
+    @Query(" update Booking b set b.status = ?3 " +
+            "where b.id in ?1 and b.status = ?2")
+    int updateStatus(Collection<Long> ids, BookingStatus currentStatus, BookingStatus newStatus);
+
+    /**
+     * Изменение статуса бронирований ids с датами начала из starts. Условие по start_date отсекает секции,
+     * которые иначе просматривались бы по индексу первичного ключа все
+     */
+    @Modifying
+    @Query(" update Booking b set b.status = ?4 " +
+            "where b.id in ?1 and b.start in ?2 and b.status = ?3")
+    int updateStatus(Collection<Long> ids, Collection<LocalDateTime> starts, BookingStatus currentStatus,
+                     BookingStatus newStatus);
+
+    /**
+     * Перевод бронирований ids с датами начала из starts из статуса currentStatus: approvedIds - в approvedStatus,
+     * остальных - в rejectedStatus
+     */
+    @Modifying
+    @Query(" update Booking b set b.status = case when b.id in ?3 then ?5 else ?6 end " +
+            "where b.id in ?1 and b.start in ?2 and b.status = ?4")
+    int updateStatus(Collection<Long> ids, Collection<LocalDateTime> starts, Collection<Long> approvedIds,
+                     BookingStatus currentStatus, BookingStatus approvedStatus, BookingStatus rejectedStatus);
+
+    @Modifying
+    @Query(" delete from Booking b " +
+            "where b.id in ?1 and b.start in ?2")
+    int deleteByIds(Collection<Long> ids, Collection<LocalDateTime> starts);
 }
@@ -1,8 +1,11 @@
 package ru.practicum.shareit.booking;
 
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BookingService {
     Booking create(Booking booking, User booker);
@@ -15,9 +18,17 @@ public interface BookingService {
 
     Booking approve(long bookingId, Boolean approved, long userId);
 
+    List<BookingApprovalResultDto> approveAll(List<BookingApprovalDto> decisions, long userId);
+
     Booking get(long bookingId, long userId);
 
     List<Booking> getAllBookingsByUser(long userId, String state, Integer from, Integer size);
 
     List<Booking> getAllBookingsByItemOwner(long itemOwnerId, String state, Integer from, Integer size);
+
+    Stream<Booking> streamAllBookingsByUser(long userId, BookingFilterState state);
+
+    Stream<Booking> streamAllBookingsByItemOwner(long itemOwnerId, BookingFilterState state);
+
+    int expire(List<Long> bookingIds);
 }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.booking;
 
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -10,25 +11,57 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.counter.BookingCounterService;
 import ru.practicum.shareit.booking.exception.BookingIncorrectDataException;
 import ru.practicum.shareit.booking.exception.BookingUnavailableOperationException;
 import ru.practicum.shareit.booking.exception.UnsupportedStatusException;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingApprovalResultDto;
+import ru.practicum.shareit.booking.dto.BookingDtoResponse;
+import ru.practicum.shareit.booking.partition.BookingPartitionService;
 import ru.practicum.shareit.common.EntityNotFoundException;
+import ru.practicum.shareit.events.EventBus;
+import ru.practicum.shareit.events.EventType;
+import ru.practicum.shareit.item.ItemDetailCache;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.model.QItem;
+import ru.practicum.shareit.outbox.AggregateType;
+import ru.practicum.shareit.outbox.OutboxEventType;
+import ru.practicum.shareit.outbox.OutboxService;
+import ru.practicum.shareit.user.model.QUser;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.EntityManager;
+
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BookingServiceImpl implements BookingService {
     public static final String START_FIELD = "start";
+    private static final int EXPORT_FETCH_SIZE = 500;
     private final BookingRepository bookingRepository;
     private final ItemRepository itemRepository;
+    private final OutboxService outboxService;
+    private final BookingCounterService bookingCounterService;
+    private final EventBus eventBus;
+    private final ItemDetailCache itemDetailCache;
+    private final BookingPartitionService bookingPartitionService;
+    private final BookingTimeStateSchema bookingTimeStateSchema;
+    private final EntityManager entityManager;
 
     @Transactional
     @Override
@@ -43,9 +76,15 @@ public class BookingServiceImpl implements BookingService {
             throw new BookingIncorrectDataException("Вещь с id = " + booking.getItem().getId() + " не доступна для бронирования");
         }
         booking.setStatus(BookingStatus.WAITING);
+        booking.setTimeState(BookingTimeState.at(booking.getStart(), booking.getEnd(), LocalDateTime.now()));
         booking.setBooker(booker);
         booking.setItem(item);
-        return bookingRepository.save(booking);
+        Booking savedBooking = bookingRepository.save(booking);
+        bookingCounterService.onCreated(savedBooking);
+        BookingDtoResponse bookingDto = BookingMapper.toBookingDtoResponse(savedBooking);
+        outboxService.record(AggregateType.BOOKING, savedBooking.getId(), OutboxEventType.BOOKING_CREATED, bookingDto);
+        eventBus.publishAfterCommit(EventType.BOOKING_CREATED, Set.of(item.getOwner().getId()), bookingDto);
+        return savedBooking;
     }
 
     @Transactional
@@ -57,12 +96,22 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     @Override
     public void deleteById(Long id) {
-        bookingRepository.deleteById(id);
+        List<Booking> bookings = lockWithParticipants(List.of(id));
+        if (bookings.isEmpty()) {
+            throw new EntityNotFoundException("Бронирование c id = " + id + " не найдено");
+        }
+        bookings.forEach(booking -> {
+            bookingCounterService.onDeleted(booking);
+            itemDetailCache.evictBookings(booking.getItem().getId());
+            entityManager.detach(booking);
+        });
+        bookingRepository.deleteByIds(List.of(id), startsOf(bookings));
     }
 
     @Override
     public Booking getById(Long id) {
-        return bookingRepository.findById(id)
+        return findWithParticipants(List.of(id)).stream()
+                .findFirst()
                 .orElseThrow(() -> {
                     throw new EntityNotFoundException("Бронирование c id = " + id + " не найдено");
                 });
@@ -71,7 +120,9 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     @Override
     public Booking approve(long bookingId, Boolean approved, long userId) {
-        Booking booking = getById(bookingId);
+        Booking booking = lockWithParticipants(List.of(bookingId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new EntityNotFoundException("Бронирование c id = " + bookingId + " не найдено"));
         if (booking.getItem().getOwner().getId() != userId) {
             throw new BookingUnavailableOperationException("Подтверждение или отклонение запроса может быть выполнено " +
                     "только владельцем вещи");
@@ -79,10 +130,127 @@ public class BookingServiceImpl implements BookingService {
         if (booking.getStatus().equals(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED)) {
             throw new BookingIncorrectDataException("Статус уже изменен");
         }
+        BookingStatus oldStatus = booking.getStatus();
+        entityManager.detach(booking);
         booking.setStatus(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
+        bookingRepository.updateStatus(List.of(bookingId), List.of(booking.getStart()), oldStatus, booking.getStatus());
+        bookingCounterService.onStatusChanged(booking, oldStatus);
+        itemDetailCache.evictBookings(booking.getItem().getId());
+        BookingDtoResponse bookingDto = BookingMapper.toBookingDtoResponse(booking);
+        outboxService.record(AggregateType.BOOKING, booking.getId(), OutboxEventType.BOOKING_STATUS_CHANGED, bookingDto);
+        eventBus.publishAfterCommit(EventType.BOOKING_STATUS_CHANGED, Set.of(booking.getBooker().getId()), bookingDto);
         return booking;
     }
 
+    /**
+     * Пакетное подтверждение или отклонение WAITING бронирований владельцем вещей. Бронирования с вещами
+     * и участниками читаются и блокируются одним запросом, статусы меняются одним условным обновлением.
+     * Чужие, несуществующие и уже рассмотренные бронирования не прерывают пакет, а получают свой результат.
+     * Рассмотренные бронирования отсоединяются от контекста, чтобы статус не записывался еще раз по одному
+     */
+    @Transactional
+    @Override
+    public List<BookingApprovalResultDto> approveAll(List<BookingApprovalDto> decisions, long userId) {
+        Map<Long, Boolean> approvedById = new LinkedHashMap<>();
+        for (BookingApprovalDto decision : decisions) {
+            if (approvedById.put(decision.getBookingId(), decision.getApproved()) != null) {
+                throw new BookingIncorrectDataException("Бронирование c id = " + decision.getBookingId() +
+                        " указано в пакете несколько раз");
+            }
+        }
+        if (approvedById.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Booking> bookings = lockWithParticipants(approvedById.keySet()).stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+        List<Booking> decided = new ArrayList<>();
+        List<BookingApprovalResultDto> results = new ArrayList<>(approvedById.size());
+        approvedById.forEach((id, approved) -> {
+            Booking booking = bookings.get(id);
+            BookingApprovalResultDto.BookingApprovalResultDtoBuilder result = BookingApprovalResultDto.builder()
+                    .bookingId(id);
+            if (booking == null) {
+                result.outcome(BookingApprovalOutcome.NOT_FOUND);
+            } else if (booking.getItem().getOwner().getId() != userId) {
+                result.outcome(BookingApprovalOutcome.NOT_OWNER);
+            } else if (booking.getStatus() != BookingStatus.WAITING) {
+                result.outcome(BookingApprovalOutcome.NOT_WAITING).status(booking.getStatus().name());
+            } else {
+                entityManager.detach(booking);
+                booking.setStatus(approved ? BookingStatus.APPROVED : BookingStatus.REJECTED);
+                decided.add(booking);
+                result.outcome(approved ? BookingApprovalOutcome.APPROVED : BookingApprovalOutcome.REJECTED)
+                        .status(booking.getStatus().name());
+            }
+            results.add(result.build());
+        });
+        if (decided.isEmpty()) {
+            return results;
+        }
+        List<Long> decidedIds = decided.stream().map(Booking::getId).collect(Collectors.toList());
+        List<LocalDateTime> decidedStarts = startsOf(decided);
+        List<Long> approvedIds = decided.stream()
+                .filter(booking -> booking.getStatus() == BookingStatus.APPROVED)
+                .map(Booking::getId)
+                .collect(Collectors.toList());
+        if (approvedIds.isEmpty()) {
+            bookingRepository.updateStatus(decidedIds, decidedStarts, BookingStatus.WAITING, BookingStatus.REJECTED);
+        } else if (approvedIds.size() == decidedIds.size()) {
+            bookingRepository.updateStatus(decidedIds, decidedStarts, BookingStatus.WAITING, BookingStatus.APPROVED);
+        } else {
+            bookingRepository.updateStatus(decidedIds, decidedStarts, approvedIds, BookingStatus.WAITING,
+                    BookingStatus.APPROVED, BookingStatus.REJECTED);
+        }
+        bookingCounterService.onDecided(decided);
+        decided.stream().map(booking -> booking.getItem().getId()).distinct().forEach(itemDetailCache::evictBookings);
+        for (Booking booking : decided) {
+            BookingDtoResponse bookingDto = BookingMapper.toBookingDtoResponse(booking);
+            outboxService.record(AggregateType.BOOKING, booking.getId(), OutboxEventType.BOOKING_STATUS_CHANGED,
+                    bookingDto);
+            eventBus.publishAfterCommit(EventType.BOOKING_STATUS_CHANGED, Set.of(booking.getBooker().getId()),
+                    bookingDto);
+        }
+        log.debug("Пользователь {} рассмотрел {} бронирований из {}", userId, decided.size(), approvedById.size());
+        return results;
+    }
+
+    /**
+     * Перевод в статус CANCELED бронирований, которые так и не были подтверждены до даты начала.
+     * Бронирования, статус которых успели изменить, не затрагиваются. Событие BOOKING_STATUS_CHANGED
+     * несет то же представление бронирования, что и при подтверждении
+     */
+    @Transactional
+    @Override
+    public int expire(List<Long> bookingIds) {
+        if (bookingIds.isEmpty()) {
+            return 0;
+        }
+        List<LocalDateTime> starts = bookingPartitionService.findStarts(bookingIds);
+        if (starts != null && starts.isEmpty()) {
+            return 0;
+        }
+        List<Long> waitingIds = starts == null ?
+                bookingRepository.lockIdsByStatus(bookingIds, BookingStatus.WAITING) :
+                bookingRepository.lockIdsByStatus(bookingIds, starts, BookingStatus.WAITING);
+        if (waitingIds.isEmpty()) {
+            return 0;
+        }
+        int expired = starts == null ?
+                bookingRepository.updateStatus(waitingIds, BookingStatus.WAITING, BookingStatus.CANCELED) :
+                bookingRepository.updateStatus(waitingIds, starts, BookingStatus.WAITING, BookingStatus.CANCELED);
+        bookingCounterService.onExpired(waitingIds);
+        waitingIds.forEach(id -> outboxService.record(AggregateType.BOOKING, id, OutboxEventType.BOOKING_EXPIRED,
+                Map.of("id", id, "status", BookingStatus.CANCELED.name())));
+        if (eventBus.hasSubscribers()) {
+            (starts == null ? bookingRepository.findWithParticipants(waitingIds) :
+                    bookingRepository.findWithParticipants(waitingIds, starts)).forEach(booking ->
+                    eventBus.publishAfterCommit(EventType.BOOKING_STATUS_CHANGED,
+                            Set.of(booking.getBooker().getId(), booking.getItem().getOwner().getId()),
+                            BookingMapper.toBookingDtoResponse(booking)));
+        }
+        return expired;
+    }
+
     @Override
     public Booking get(long bookingId, long userId) {
         Booking booking = getById(bookingId);
@@ -105,60 +273,117 @@ public class BookingServiceImpl implements BookingService {
         return getBookingsByParams(state, byItemOwnerId, from, size);
     }
 
+    @Override
+    public Stream<Booking> streamAllBookingsByUser(long userId, BookingFilterState state) {
+        BooleanExpression byBookerId = QBooking.booking.booker.id.eq(userId);
+        return streamBookingsByParams(state, byBookerId);
+    }
+
+    @Override
+    public Stream<Booking> streamAllBookingsByItemOwner(long itemOwnerId, BookingFilterState state) {
+        BooleanExpression byItemOwnerId = QItem.item.owner.id.eq(itemOwnerId);
+        return streamBookingsByParams(state, byItemOwnerId);
+    }
+
     private List<Booking> getBookingsByParams(String state, BooleanExpression byOwnerOrBookerId, Integer from, Integer size) {
-        BookingFilterState filterState = BookingFilterState.findByValue(state);
-        if (filterState == null) {
-            throw new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS");
-        }
-        LocalDateTime now = LocalDateTime.now();
-        Sort sortByStartDateDesc = Sort.by(START_FIELD).descending();
-        Sort sortByStartDateAsc = Sort.by(START_FIELD).ascending();
-        Predicate predicate;
-        Sort sort;
+        BookingFilterState filterState = BookingFilterState.parse(state);
+        Predicate predicate = toPredicate(filterState, byOwnerOrBookerId, LocalDateTime.now());
+        Sort sort = filterState == BookingFilterState.CURRENT ? Sort.by(START_FIELD).ascending() :
+                Sort.by(START_FIELD).descending();
+        boolean byPage = false;
+        if (from != null && size != null) {
+            byPage = true;
+        }
+        if (byPage) {
+            Pageable page = PageRequest.of(from / size, size, sort);
+            Page<Booking> bookingsPage = bookingRepository.findAll(predicate, page);
+            return bookingsPage.getContent();
+        } else {
+            return (List<Booking>) bookingRepository.findAll(predicate, sort);
+        }
+    }
+
+    /**
+     * Курсор по бронированиям с теми же фильтрами и сортировкой, что и у списочных запросов.
+     * Вещь, ее владелец и автор бронирования подгружаются в том же запросе
+     */
+    /**
+     * Бронирования ids с вещью и участниками под блокировкой. В секционированной таблице поиск дополняется
+     * датами начала из booking_starts и затрагивает только их секции
+     */
+    private List<Booking> lockWithParticipants(Collection<Long> ids) {
+        List<LocalDateTime> starts = bookingPartitionService.findStarts(ids);
+        if (starts == null) {
+            return bookingRepository.lockWithParticipants(ids);
+        }
+        return starts.isEmpty() ? List.of() : bookingRepository.lockWithParticipants(ids, starts);
+    }
+
+    private List<Booking> findWithParticipants(Collection<Long> ids) {
+        List<LocalDateTime> starts = bookingPartitionService.findStarts(ids);
+        if (starts == null) {
+            return bookingRepository.findWithParticipants(ids);
+        }
+        return starts.isEmpty() ? List.of() : bookingRepository.findWithParticipants(ids, starts);
+    }
+
+    private static List<LocalDateTime> startsOf(Collection<Booking> bookings) {
+        return bookings.stream().map(Booking::getStart).distinct().collect(Collectors.toList());
+    }
+
+    private Stream<Booking> streamBookingsByParams(BookingFilterState filterState, BooleanExpression byOwnerOrBookerId) {
+        QBooking booking = QBooking.booking;
+        QUser booker = new QUser("booker");
+        return new JPAQueryFactory(entityManager)
+                .selectFrom(booking)
+                .join(booking.item, QItem.item).fetchJoin()
+                .join(QItem.item.owner, QUser.user).fetchJoin()
+                .join(booking.booker, booker).fetchJoin()
+                .where(toPredicate(filterState, byOwnerOrBookerId, LocalDateTime.now()))
+                .orderBy(filterState == BookingFilterState.CURRENT ? booking.start.asc() : booking.start.desc())
+                .setHint(HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .stream();
+    }
+
+    /**
+     * CURRENT и FUTURE сначала отбираются по отметке time_state (индекс по автору, отметке и началу),
+     * а точные условия по времени применяются к этой части. Отметка только отстает от now, поэтому
+     * бронирования, сменившие состояние после последнего переноса, тоже попадают в выборку.
+     * PAST охватывает почти всю историю пользователя, и отметка его не сужает.
+     * Избыточные условия по start_date нужны для отсечения секций: архив не содержит CURRENT,
+     * а PAST не бывает в будущих секциях. Пока заполнение отметок не подтверждено, бронирования
+     * без отметки не должны выпадать из выборки, и используются только условия по времени
+     */
+    private Predicate toPredicate(BookingFilterState filterState, BooleanExpression byOwnerOrBookerId, LocalDateTime now) {
+        QBooking booking = QBooking.booking;
+        boolean byTimeState = bookingTimeStateSchema.isBackfilled();
         switch (filterState) {
             case ALL:
-                predicate = byOwnerOrBookerId;
-                sort = sortByStartDateDesc;
-                break;
+                return byOwnerOrBookerId;
             case CURRENT:
-                BooleanExpression byEndBefore = QBooking.booking.end.after(now);
-                BooleanExpression byStartAfter = QBooking.booking.start.before(now);
-                predicate = byOwnerOrBookerId.and(byEndBefore).and(byStartAfter);
-                sort = sortByStartDateAsc;
-                break;
+                BooleanExpression notYetPast = byTimeState ? booking.timeState.loe(BookingTimeState.CURRENT) : null;
+                BooleanExpression byEndBefore = booking.end.after(now);
+                BooleanExpression byStartAfter = booking.start.before(now);
+                LocalDateTime archivedBefore = bookingPartitionService.getArchivedBefore();
+                if (archivedBefore != null) {
+                    byStartAfter = byStartAfter.and(booking.start.goe(archivedBefore));
+                }
+                return byOwnerOrBookerId.and(notYetPast).and(byEndBefore).and(byStartAfter);
             case PAST:
-                BooleanExpression byEndAfter = QBooking.booking.end.before(now);
-                predicate = byOwnerOrBookerId.and(byEndAfter);
-                sort = sortByStartDateDesc;
-                break;
+                BooleanExpression byEndAfter = booking.end.before(now);
+                return byOwnerOrBookerId.and(byEndAfter).and(booking.start.before(now));
             case FUTURE:
-                byStartAfter = QBooking.booking.start.after(now);
-                predicate = byOwnerOrBookerId.and(byStartAfter);
-                sort = sortByStartDateDesc;
-                break;
+                BooleanExpression markedFuture = byTimeState ? booking.timeState.eq(BookingTimeState.FUTURE) : null;
+                byStartAfter = booking.start.after(now);
+                return byOwnerOrBookerId.and(markedFuture).and(byStartAfter);
             case WAITING:
                 BooleanExpression eqWaitingStatus = QBooking.booking.status.eq(BookingStatus.WAITING);
-                predicate = byOwnerOrBookerId.and(eqWaitingStatus);
-                sort = sortByStartDateDesc;
-                break;
+                return byOwnerOrBookerId.and(eqWaitingStatus);
             case REJECTED:
                 BooleanExpression eqRejectedStatus = QBooking.booking.status.eq(BookingStatus.REJECTED);
-                predicate = byOwnerOrBookerId.and(eqRejectedStatus);
-                sort = sortByStartDateDesc;
-                break;
+                return byOwnerOrBookerId.and(eqRejectedStatus);
             default:
                 throw new UnsupportedStatusException("Unknown state");
         }
-        boolean byPage = false;
-        if (from != null && size != null) {
-            byPage = true;
-        }
-        if (byPage) {
-            Pageable page = PageRequest.of(from / size, size, sort);
-            Page<Booking> bookingsPage = bookingRepository.findAll(predicate, page);
-            return bookingsPage.getContent();
-        } else {
-            return (List<Booking>) bookingRepository.findAll(predicate, sort);
-        }
     }
 }
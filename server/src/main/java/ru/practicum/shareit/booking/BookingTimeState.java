@@ -0,0 +1,22 @@
+package ru.practicum.shareit.booking;
+
+import java.time.LocalDateTime;
+
+/**
+ * Отметка бронирования относительно времени в колонке time_state. Отметка может только отставать
+ * от текущего момента: ее выставляют при создании и переносят вперед вместе со счетчиками бронирований.
+ * Хранится порядковым номером: порядок констант - порядок смены состояний, поэтому "еще не PAST"
+ * выражается диапазоном по индексу
+ */
+public enum BookingTimeState {
+    FUTURE,
+    CURRENT,
+    PAST;
+
+    public static BookingTimeState at(LocalDateTime start, LocalDateTime end, LocalDateTime at) {
+        if (start.isAfter(at)) {
+            return FUTURE;
+        }
+        return end.isAfter(at) ? CURRENT : PAST;
+    }
+}
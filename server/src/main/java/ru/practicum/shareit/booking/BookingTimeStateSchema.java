@@ -0,0 +1,36 @@
+package ru.practicum.shareit.booking;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Заполнены ли отметки time_state у всех бронирований. Признак - объявление колонки NOT NULL, которое делает
+ * миграция после заполнения. Пока это не подтверждено, проверка повторяется не чаще раза в recheck-interval,
+ * а подтверждение запоминается до остановки узла
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingTimeStateSchema {
+    private final JdbcTemplate jdbcTemplate;
+    @Value("${shareit.booking.time-state.recheck-interval:PT10S}")
+    private Duration recheckInterval;
+    private volatile boolean backfilled;
+    private volatile long nextCheckNanos = System.nanoTime();
+
+    public boolean isBackfilled() {
+        if (backfilled || System.nanoTime() - nextCheckNanos < 0) {
+            return backfilled;
+        }
+        nextCheckNanos = System.nanoTime() + recheckInterval.toNanos();
+        String nullable = jdbcTemplate.queryForList("SELECT is_nullable FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND lower(table_name) = 'bookings' " +
+                        "AND lower(column_name) = 'time_state'", String.class)
+                .stream().findFirst().orElse("YES");
+        backfilled = "NO".equals(nullable);
+        return backfilled;
+    }
+}
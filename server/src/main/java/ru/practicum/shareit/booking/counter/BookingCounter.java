@@ -0,0 +1,23 @@
+package ru.practicum.shareit.booking.counter;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Количество бронирований пользователя в одной роли, попадающих под фильтр state списочных запросов
+ */
+@Entity
+@Table(name = "booking_counters")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BookingCounter {
+    @EmbeddedId
+    private BookingCounterId id;
+
+    @Column(name = "bookings_count")
+    private long count;
+}
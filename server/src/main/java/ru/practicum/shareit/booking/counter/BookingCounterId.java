@@ -0,0 +1,27 @@
+package ru.practicum.shareit.booking.counter;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.BookingFilterState;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingCounterId implements Serializable {
+    @Column(name = "user_id")
+    private long userId;
+
+    @Enumerated(EnumType.STRING)
+    private BookingRole role;
+
+    @Enumerated(EnumType.STRING)
+    private BookingFilterState state;
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.booking.counter;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.BookingFilterState;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookingCounterRepository extends JpaRepository<BookingCounter, BookingCounterId> {
+    List<BookingCounter> findByIdUserId(long userId);
+
+    @Modifying
+    @Query(" update BookingCounter c set c.count = c.count + ?4 " +
+            "where c.id.userId = ?1 and c.id.role = ?2 and c.id.state in ?3")
+    int increment(long userId, BookingRole role, Collection<BookingFilterState> states, long delta);
+}
@@ -0,0 +1,81 @@
+package ru.practicum.shareit.booking.counter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.common.JobLockService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Заполнение счетчиков бронирований при первом запуске (до того, как узел начнет принимать запросы)
+ * и периодический перенос в них и в отметки time_state переходов FUTURE -> CURRENT -> PAST. Если пересчет
+ * при запуске не завершился, его повторяет следующий запуск фоновой задачи
+ */
+@Component
+@Slf4j
+@DependsOnDatabaseInitialization
+public class BookingCounterScheduler implements InitializingBean {
+    private static final String JOB_NAME = "booking-counters";
+    private final BookingCounterService bookingCounterService;
+    private final JobLockService jobLockService;
+    private final Duration lockAtMostFor;
+    private final Counter transitions;
+
+    public BookingCounterScheduler(BookingCounterService bookingCounterService,
+                                   JobLockService jobLockService,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${shareit.booking.counters.lock-at-most-for:PT5M}") Duration lockAtMostFor) {
+        this.bookingCounterService = bookingCounterService;
+        this.jobLockService = jobLockService;
+        this.lockAtMostFor = lockAtMostFor;
+        this.transitions = Counter.builder("shareit.bookings.counters.transitions")
+                .description("Бронирований, перенесенных в счетчиках между FUTURE, CURRENT и PAST")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        bookingCounterService.createWatermarkIfMissing();
+        if (!jobLockService.tryLock(JOB_NAME, lockAtMostFor)) {
+            return;
+        }
+        try {
+            if (bookingCounterService.initializeIfMissing()) {
+                log.info("Счетчики бронирований пересчитаны по таблице bookings");
+            }
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.counters.fixed-delay:60000}")
+    public void advance() {
+        if (!jobLockService.tryLock(JOB_NAME, lockAtMostFor)) {
+            return;
+        }
+        try {
+            if (bookingCounterService.initializeIfMissing()) {
+                log.info("Счетчики бронирований пересчитаны по таблице bookings");
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            long moved = 0;
+            long batch;
+            do {
+                batch = bookingCounterService.advance(now);
+                moved += batch;
+            } while (batch > 0);
+            transitions.increment(moved);
+            log.debug("В счетчиках бронирований перенесено {} переходов между состояниями", moved);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package ru.practicum.shareit.booking.counter;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingFilterState;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.BookingTimeState;
+import ru.practicum.shareit.booking.QBooking;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.item.model.QItem;
+import ru.practicum.shareit.user.model.QUser;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Счетчики бронирований по (пользователь, роль, состояние), чтобы сводка не выполняла фильтры списочных запросов.
+ * Состояния ALL, WAITING и REJECTED меняются вместе с бронированиями. Состояния FUTURE, CURRENT и PAST
+ * следуют за отметкой time_state самих бронирований: счетчик меняется в той же транзакции, что и отметка,
+ * а фоновая задача переносит отставшие отметки вместе со счетчиками, поэтому счетчики отстают не более чем
+ * на ее период. Изменения бронирований не блокируют строку отметки счетчиков: они сначала блокируют свои
+ * строки bookings и users и только потом читают отметку, а пересчет дожидается их завершения.
+ * Счетчики меняются в порядке (пользователь, роль, состояние), чтобы параллельные транзакции
+ * не блокировали друг друга по кругу
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingCounterService {
+    private static final Comparator<BookingCounterId> UPDATE_ORDER = Comparator
+            .comparingLong(BookingCounterId::getUserId)
+            .thenComparing(BookingCounterId::getRole)
+            .thenComparing(BookingCounterId::getState);
+    private final BookingCounterRepository counterRepository;
+    private final BookingCounterWatermarkRepository watermarkRepository;
+    private final BookingRepository bookingRepository;
+    private final EntityManager entityManager;
+    @Value("${shareit.booking.counters.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Нулевые счетчики нового пользователя, чтобы дальше их можно было только увеличивать и уменьшать.
+     * Вызывается после вставки пользователя
+     */
+    @Transactional
+    public void register(long userId) {
+        if (!isCounted()) {
+            return;
+        }
+        for (BookingRole role : BookingRole.values()) {
+            for (BookingFilterState state : BookingFilterState.values()) {
+                entityManager.persist(new BookingCounter(new BookingCounterId(userId, role, state), 0));
+            }
+        }
+    }
+
+    /**
+     * Вызывается после вставки бронирования
+     */
+    @Transactional
+    public void onCreated(Booking booking) {
+        if (isCounted()) {
+            add(booking, statesOf(booking), 1);
+        }
+    }
+
+    /**
+     * Вызывается для бронирования, прочитанного под блокировкой строки, чтобы его отметка time_state
+     * не сменилась до удаления
+     */
+    @Transactional
+    public void onDeleted(Booking booking) {
+        if (isCounted()) {
+            add(booking, statesOf(booking), -1);
+        }
+    }
+
+    /**
+     * Вызывается для бронирования, прочитанного под блокировкой строки
+     */
+    @Transactional
+    public void onStatusChanged(Booking booking, BookingStatus oldStatus) {
+        BookingFilterState oldState = statusState(oldStatus);
+        BookingFilterState newState = statusState(booking.getStatus());
+        if (oldState == newState || !isCounted()) {
+            return;
+        }
+        Map<BookingCounterId, Long> deltas = new HashMap<>();
+        for (BookingRole role : BookingRole.values()) {
+            if (oldState != null) {
+                deltas.merge(new BookingCounterId(participant(booking, role), role, oldState), -1L, Long::sum);
+            }
+            if (newState != null) {
+                deltas.merge(new BookingCounterId(participant(booking, role), role, newState), 1L, Long::sum);
+            }
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Бронирования, переведенные из WAITING пакетным подтверждением. Изменения суммируются,
+     * и каждый счетчик обновляется один раз на весь пакет
+     */
+    @Transactional
+    public void onDecided(Collection<Booking> bookings) {
+        if (!isCounted()) {
+            return;
+        }
+        Map<BookingCounterId, Long> deltas = new HashMap<>();
+        for (Booking booking : bookings) {
+            BookingFilterState newState = statusState(booking.getStatus());
+            for (BookingRole role : BookingRole.values()) {
+                long userId = participant(booking, role);
+                deltas.merge(new BookingCounterId(userId, role, BookingFilterState.WAITING), -1L, Long::sum);
+                if (newState != null) {
+                    deltas.merge(new BookingCounterId(userId, role, newState), 1L, Long::sum);
+                }
+            }
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Бронирования, переведенные из WAITING в CANCELED фоновым истечением
+     */
+    @Transactional
+    public void onExpired(Collection<Long> bookingIds) {
+        if (!isCounted()) {
+            return;
+        }
+        Map<BookingCounterId, Long> deltas = new HashMap<>();
+        for (BookingRole role : BookingRole.values()) {
+            countByUser(role, QBooking.booking.id.in(bookingIds)).forEach((userId, count) ->
+                    deltas.put(new BookingCounterId(userId, role, BookingFilterState.WAITING), -count));
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Перенос отметок time_state не более чем batchSize начавшихся и batchSize закончившихся к now бронирований
+     * и в той же транзакции перенос их в счетчиках FUTURE -> CURRENT -> PAST. Строки, заблокированные
+     * изменениями бронирований, пропускаются до следующего запуска. Возвращает количество бронирований,
+     * сменивших состояние
+     */
+    @Transactional
+    public long advance(LocalDateTime now) {
+        BookingCounterWatermark watermark = watermarkRepository.findForUpdate().orElse(null);
+        if (watermark == null || watermark.getCountedAt() == null) {
+            return 0;
+        }
+        List<Long> ids = new ArrayList<>(bookingRepository.lockStartedIds(BookingTimeState.FUTURE, now,
+                PageRequest.of(0, batchSize)));
+        ids.addAll(bookingRepository.lockEndedIds(BookingTimeState.CURRENT, now, PageRequest.of(0, batchSize)));
+        if (!ids.isEmpty()) {
+            QBooking booking = QBooking.booking;
+            List<Tuple> rows = new JPAQueryFactory(entityManager)
+                    .select(booking.booker.id, QItem.item.owner.id, booking.timeState, booking.start, booking.end)
+                    .from(booking)
+                    .join(booking.item, QItem.item)
+                    .where(booking.id.in(ids))
+                    .fetch();
+            Map<BookingCounterId, Long> deltas = new HashMap<>();
+            for (Tuple row : rows) {
+                BookingFilterState from = filterState(row.get(booking.timeState));
+                BookingFilterState to = filterState(BookingTimeState.at(row.get(booking.start), row.get(booking.end),
+                        now));
+                for (BookingRole role : BookingRole.values()) {
+                    long userId = role == BookingRole.BOOKER ? row.get(booking.booker.id) :
+                            row.get(QItem.item.owner.id);
+                    deltas.merge(new BookingCounterId(userId, role, from), -1L, Long::sum);
+                    deltas.merge(new BookingCounterId(userId, role, to), 1L, Long::sum);
+                }
+            }
+            bookingRepository.updateTimeState(ids, now, BookingTimeState.CURRENT, BookingTimeState.PAST);
+            apply(deltas);
+        }
+        if (now.isAfter(watermark.getCountedAt())) {
+            watermark.setCountedAt(now);
+        }
+        return ids.size();
+    }
+
+    /**
+     * Пустая строка отметки. Создается каждым узлом до приема запросов
+     */
+    public void createWatermarkIfMissing() {
+        if (watermarkRepository.existsById(BookingCounterWatermark.ID)) {
+            return;
+        }
+        try {
+            watermarkRepository.saveAndFlush(new BookingCounterWatermark(BookingCounterWatermark.ID, null));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Строку отметки счетчиков бронирований создал другой узел");
+        }
+    }
+
+    /**
+     * Полный пересчет по отметкам time_state и статусам, пока отметка счетчиков пуста. В PostgreSQL таблицы
+     * users и bookings блокируются от изменений до конца пересчета: блокировка дожидается начатых изменений,
+     * которые прочитали пустую отметку и не тронули счетчики, и пересчет их учитывает. Пересчет выполняется
+     * один раз при первом запуске
+     */
+    @Transactional
+    public boolean initializeIfMissing() {
+        BookingCounterWatermark watermark = watermarkRepository.findForUpdate()
+                .orElseThrow(() -> new IllegalStateException("Строка отметки счетчиков бронирований не создана"));
+        if (watermark.getCountedAt() != null) {
+            return false;
+        }
+        if (isPostgreSql()) {
+            entityManager.createNativeQuery("LOCK TABLE users, bookings IN EXCLUSIVE MODE").executeUpdate();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Map<BookingCounterId, Long> counts = new HashMap<>();
+        for (BookingRole role : BookingRole.values()) {
+            for (BookingFilterState state : BookingFilterState.values()) {
+                countByUser(role, statePredicate(state)).forEach((userId, count) ->
+                        counts.put(new BookingCounterId(userId, role, state), count));
+            }
+        }
+        counterRepository.deleteAllInBatch();
+        List<Long> userIds = new JPAQueryFactory(entityManager).select(QUser.user.id).from(QUser.user).fetch();
+        for (Long userId : userIds) {
+            for (BookingRole role : BookingRole.values()) {
+                for (BookingFilterState state : BookingFilterState.values()) {
+                    BookingCounterId id = new BookingCounterId(userId, role, state);
+                    entityManager.persist(new BookingCounter(id, counts.getOrDefault(id, 0L)));
+                }
+            }
+        }
+        watermark.setCountedAt(now);
+        return true;
+    }
+
+    @Transactional(readOnly = true)
+    public BookingSummaryDto getSummary(long userId) {
+        Map<BookingRole, Map<BookingFilterState, Long>> summary = new EnumMap<>(BookingRole.class);
+        for (BookingRole role : BookingRole.values()) {
+            Map<BookingFilterState, Long> counts = new EnumMap<>(BookingFilterState.class);
+            for (BookingFilterState state : BookingFilterState.values()) {
+                counts.put(state, 0L);
+            }
+            summary.put(role, counts);
+        }
+        for (BookingCounter counter : counterRepository.findByIdUserId(userId)) {
+            summary.get(counter.getId().getRole()).put(counter.getId().getState(), counter.getCount());
+        }
+        return BookingSummaryDto.builder()
+                .booker(summary.get(BookingRole.BOOKER))
+                .owner(summary.get(BookingRole.OWNER))
+                .build();
+    }
+
+    /**
+     * Выполнен ли полный пересчет. Отметка читается без блокировки
+     */
+    private boolean isCounted() {
+        BookingCounterWatermark watermark = watermarkRepository.findById(BookingCounterWatermark.ID)
+                .orElseThrow(() -> new IllegalStateException("Строка отметки счетчиков бронирований не создана"));
+        return watermark.getCountedAt() != null;
+    }
+
+    private boolean isPostgreSql() {
+        return entityManager.unwrap(Session.class).doReturningWork(connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+    }
+
+    private void add(Booking booking, Set<BookingFilterState> states, long delta) {
+        Map<BookingCounterId, Long> deltas = new HashMap<>();
+        for (BookingRole role : BookingRole.values()) {
+            for (BookingFilterState state : states) {
+                deltas.put(new BookingCounterId(participant(booking, role), role, state), delta);
+            }
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Изменения счетчиков по одной строке в порядке UPDATE_ORDER. Выражение, меняющее несколько строк,
+     * блокирует их в порядке хранения, который меняется с каждым обновлением
+     */
+    private void apply(Map<BookingCounterId, Long> deltas) {
+        List<BookingCounterId> ids = new ArrayList<>(deltas.keySet());
+        ids.sort(UPDATE_ORDER);
+        for (BookingCounterId id : ids) {
+            long delta = deltas.get(id);
+            if (delta != 0) {
+                counterRepository.increment(id.getUserId(), id.getRole(), Set.of(id.getState()), delta);
+            }
+        }
+    }
+
+    private Map<Long, Long> countByUser(BookingRole role, Predicate predicate) {
+        QBooking booking = QBooking.booking;
+        NumberPath<Long> userId = role == BookingRole.BOOKER ? booking.booker.id : QItem.item.owner.id;
+        JPAQuery<Tuple> query = new JPAQueryFactory(entityManager)
+                .select(userId, booking.count())
+                .from(booking);
+        if (role == BookingRole.OWNER) {
+            query.join(booking.item, QItem.item);
+        }
+        Map<Long, Long> counts = new HashMap<>();
+        for (Tuple row : query.where(predicate).groupBy(userId).fetch()) {
+            counts.put(row.get(userId), row.get(booking.count()));
+        }
+        return counts;
+    }
+
+    private static long participant(Booking booking, BookingRole role) {
+        return role == BookingRole.BOOKER ? booking.getBooker().getId() : booking.getItem().getOwner().getId();
+    }
+
+    private static BooleanExpression statePredicate(BookingFilterState state) {
+        QBooking booking = QBooking.booking;
+        switch (state) {
+            case CURRENT:
+                return booking.timeState.eq(BookingTimeState.CURRENT);
+            case PAST:
+                return booking.timeState.eq(BookingTimeState.PAST);
+            case FUTURE:
+                return booking.timeState.eq(BookingTimeState.FUTURE);
+            case WAITING:
+                return booking.status.eq(BookingStatus.WAITING);
+            case REJECTED:
+                return booking.status.eq(BookingStatus.REJECTED);
+            default:
+                return null;
+        }
+    }
+
+    private static Set<BookingFilterState> statesOf(Booking booking) {
+        Set<BookingFilterState> states = EnumSet.of(BookingFilterState.ALL, filterState(booking.getTimeState()));
+        BookingFilterState statusState = statusState(booking.getStatus());
+        if (statusState != null) {
+            states.add(statusState);
+        }
+        return states;
+    }
+
+    private static BookingFilterState filterState(BookingTimeState timeState) {
+        switch (timeState) {
+            case FUTURE:
+                return BookingFilterState.FUTURE;
+            case CURRENT:
+                return BookingFilterState.CURRENT;
+            default:
+                return BookingFilterState.PAST;
+        }
+    }
+
+    private static BookingFilterState statusState(BookingStatus status) {
+        if (status == BookingStatus.WAITING) {
+            return BookingFilterState.WAITING;
+        }
+        return status == BookingStatus.REJECTED ? BookingFilterState.REJECTED : null;
+    }
+}
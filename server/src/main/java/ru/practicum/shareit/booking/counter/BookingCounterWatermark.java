@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.counter;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Момент, на который счетчики CURRENT, PAST и FUTURE актуальны. Новые бронирования классифицируются
+ * относительно него, а фоновая задача переносит в счетчиках все переходы, случившиеся после него.
+ * Пустое значение означает, что полного пересчета еще не было
+ */
+@Entity
+@Table(name = "booking_counters_watermark")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class BookingCounterWatermark {
+    public static final int ID = 1;
+
+    @Id
+    private int id;
+
+    @Column(name = "counted_at")
+    private LocalDateTime countedAt;
+}
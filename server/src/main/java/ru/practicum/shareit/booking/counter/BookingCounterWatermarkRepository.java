@@ -0,0 +1,17 @@
+package ru.practicum.shareit.booking.counter;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import javax.persistence.LockModeType;
+import java.util.Optional;
+
+public interface BookingCounterWatermarkRepository extends JpaRepository<BookingCounterWatermark, Integer> {
+    /**
+     * Блокировка берется только пересчетом и переносом отметок, изменения бронирований читают отметку без нее
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select w from BookingCounterWatermark w where w.id = " + BookingCounterWatermark.ID)
+    Optional<BookingCounterWatermark> findForUpdate();
+}
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.booking.counter;
+
+/**
+ * Роль пользователя в бронировании: автор бронирования или владелец вещи
+ */
+public enum BookingRole {
+    BOOKER,
+    OWNER
+}
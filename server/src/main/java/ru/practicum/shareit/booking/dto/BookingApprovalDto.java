@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookingApprovalDto {
+    private Long bookingId;
+
+    private Boolean approved;
+}
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.practicum.shareit.booking.BookingApprovalOutcome;
+
+/**
+ * Результат по одному бронированию из пакета. Статус не раскрывается для чужих и несуществующих бронирований
+ */
+@Getter
+@Builder
+public class BookingApprovalResultDto {
+    private Long bookingId;
+    private BookingApprovalOutcome outcome;
+    private String status;
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+import ru.practicum.shareit.booking.BookingFilterState;
+
+import java.util.Map;
+
+@Getter
+@Builder
+public class BookingSummaryDto {
+    private Map<BookingFilterState, Long> booker;
+    private Map<BookingFilterState, Long> owner;
+}
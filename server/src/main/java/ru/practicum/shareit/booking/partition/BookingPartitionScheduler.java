@@ -0,0 +1,87 @@
+package ru.practicum.shareit.booking.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.common.JobLockService;
+
+import java.time.Duration;
+import java.time.Period;
+import java.time.YearMonth;
+
+/**
+ * Секционирование bookings при первом запуске на PostgreSQL и периодическое обслуживание секций:
+ * создание секций на monthsAhead месяцев вперед и перенос в архив месяцев старше retention.
+ * Граница архива перечитывается на каждом узле, даже если задачу выполнил другой
+ */
+@Component
+@Slf4j
+@DependsOnDatabaseInitialization
+@ConditionalOnProperty(value = "shareit.booking.partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingPartitionScheduler implements InitializingBean {
+    private static final String JOB_NAME = "booking-partitions";
+    private final BookingPartitionService bookingPartitionService;
+    private final JobLockService jobLockService;
+    private final int monthsAhead;
+    private final Period retention;
+    private final Duration lockAtMostFor;
+    private boolean supported;
+
+    public BookingPartitionScheduler(BookingPartitionService bookingPartitionService,
+                                     JobLockService jobLockService,
+                                     @Value("${shareit.booking.partitions.months-ahead:3}") int monthsAhead,
+                                     @Value("${shareit.booking.partitions.retention:P12M}") Period retention,
+                                     @Value("${shareit.booking.partitions.lock-at-most-for:PT30M}") Duration lockAtMostFor) {
+        this.bookingPartitionService = bookingPartitionService;
+        this.jobLockService = jobLockService;
+        this.monthsAhead = monthsAhead;
+        this.retention = retention;
+        this.lockAtMostFor = lockAtMostFor;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        supported = bookingPartitionService.isSupported();
+        if (!supported) {
+            log.info("Секционирование bookings поддерживается только в PostgreSQL, обслуживание секций отключено");
+            return;
+        }
+        maintain(true);
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.booking.partitions.fixed-delay:3600000}")
+    public void maintainPartitions() {
+        if (supported) {
+            maintain(false);
+        }
+    }
+
+    private void maintain(boolean startup) {
+        if (jobLockService.tryLock(JOB_NAME, lockAtMostFor)) {
+            try {
+                YearMonth now = YearMonth.now();
+                YearMonth until = now.plusMonths(monthsAhead);
+                if (startup) {
+                    bookingPartitionService.partitionIfNeeded(until);
+                    bookingPartitionService.createStartsIfMissing();
+                }
+                YearMonth from = bookingPartitionService.historyUpperBound();
+                for (YearMonth month = from; month != null && !month.isAfter(until); month = month.plusMonths(1)) {
+                    bookingPartitionService.createIfMissing(month);
+                }
+                YearMonth before = now.minus(retention);
+                YearMonth archived;
+                do {
+                    archived = bookingPartitionService.archiveNext(before);
+                } while (archived != null);
+            } finally {
+                jobLockService.unlock(JOB_NAME);
+            }
+        }
+        bookingPartitionService.refreshArchivedBefore();
+    }
+}
@@ -0,0 +1,264 @@
+package ru.practicum.shareit.booking.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.BookingTimeState;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Секционирование таблицы bookings по месяцам start_date (только PostgreSQL).
+ * Секции вида bookings_2024_05 покрывают месяцы от границы архива до нескольких месяцев вперед,
+ * более поздние даты начала попадают в bookings_default. Старые месяцы переносятся в bookings_history -
+ * секцию bookings от MINVALUE до границы архива, которая сама разбита по месяцам. Архив остается частью
+ * bookings, поэтому PAST и проверка завершенного бронирования видят его без изменений в запросах,
+ * а запросы с условием start_date >= границы архива его не затрагивают.
+ * Первичный ключ секционированной таблицы - (id, start_date), и поиск только по id просматривает все секции.
+ * Поэтому даты начала по id хранятся в несекционированной таблице booking_starts, которую ведет триггер,
+ * и запросы по id дополняются условием по start_date
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingPartitionService {
+    private static final String TABLE = "bookings";
+    private static final String HISTORY = "bookings_history";
+    private static final String DEFAULT = "bookings_default";
+    private static final String STARTS = "booking_starts";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private final JdbcTemplate jdbcTemplate;
+    private volatile LocalDateTime archivedBefore;
+    private volatile boolean startsIndexed;
+
+    public boolean isSupported() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product);
+    }
+
+    /**
+     * Граница архива: все бронирования с более ранней датой начала лежат в bookings_history и уже закончились.
+     * null, если таблица не секционирована. Граница только растет, поэтому устаревшее значение
+     * лишь захватывает лишние секции
+     */
+    public LocalDateTime getArchivedBefore() {
+        return archivedBefore;
+    }
+
+    @Transactional(readOnly = true)
+    public void refreshArchivedBefore() {
+        YearMonth month = historyUpperBound();
+        archivedBefore = month == null ? null : month.atDay(1).atStartOfDay();
+        startsIndexed = month != null && relkind(STARTS) != null;
+    }
+
+    /**
+     * Различные даты начала бронирований ids из booking_starts - условие по start_date, с которым поиск
+     * по id затрагивает только секции этих дат. null, если таблица не секционирована или booking_starts
+     * еще не создана: тогда поиск идет только по id
+     */
+    public List<LocalDateTime> findStarts(Collection<Long> ids) {
+        if (!startsIndexed || ids.isEmpty()) {
+            return null;
+        }
+        return jdbcTemplate.queryForList("SELECT DISTINCT start_date FROM " + STARTS + " WHERE id IN (" +
+                String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", LocalDateTime.class, ids.toArray());
+    }
+
+    /**
+     * Создание и заполнение booking_starts для секционированной таблицы. Триггер на bookings переносится
+     * на все секции, в том числе создаваемые и подключаемые позже, и сохраняет дату начала при вставке,
+     * переносе между секциями и изменении даты, а при удалении убирает строку. Возвращает false,
+     * если таблица не секционирована или booking_starts уже есть
+     */
+    @Transactional
+    public boolean createStartsIfMissing() {
+        if (!"p".equals(relkind(TABLE)) || relkind(STARTS) != null) {
+            return false;
+        }
+        jdbcTemplate.execute("LOCK TABLE bookings IN SHARE MODE");
+        jdbcTemplate.execute("CREATE TABLE " + STARTS + " (id BIGINT PRIMARY KEY, " +
+                "start_date timestamp WITHOUT TIME ZONE NOT NULL)");
+        int rows = jdbcTemplate.update("INSERT INTO " + STARTS + " SELECT id, start_date FROM bookings");
+        jdbcTemplate.execute("CREATE OR REPLACE FUNCTION " + STARTS + "_sync() RETURNS trigger " +
+                "LANGUAGE plpgsql AS $$\n" +
+                "BEGIN\n" +
+                "    IF TG_OP = 'DELETE' THEN\n" +
+                "        DELETE FROM " + STARTS + " WHERE id = OLD.id;\n" +
+                "        RETURN OLD;\n" +
+                "    END IF;\n" +
+                "    INSERT INTO " + STARTS + " (id, start_date) VALUES (NEW.id, NEW.start_date)\n" +
+                "        ON CONFLICT (id) DO UPDATE SET start_date = EXCLUDED.start_date;\n" +
+                "    RETURN NEW;\n" +
+                "END $$");
+        jdbcTemplate.execute("CREATE TRIGGER " + STARTS + "_sync AFTER INSERT OR DELETE OR UPDATE OF start_date " +
+                "ON bookings FOR EACH ROW EXECUTE FUNCTION " + STARTS + "_sync()");
+        log.info("Создана таблица {} с датами начала {} бронирований", STARTS, rows);
+        return true;
+    }
+
+    /**
+     * Перевод несекционированной таблицы bookings в секционированную с переносом данных, индексов
+     * и внешних ключей. Секции создаются на все месяцы от самого раннего бронирования до until.
+     * Возвращает false, если таблица уже секционирована
+     */
+    @Transactional
+    public boolean partitionIfNeeded(YearMonth until) {
+        if (!"r".equals(relkind(TABLE))) {
+            return false;
+        }
+        jdbcTemplate.execute("LOCK TABLE bookings IN ACCESS EXCLUSIVE MODE");
+        String legacy = TABLE + "_unpartitioned";
+        List<String> indexes = jdbcTemplate.queryForList("SELECT indexdef FROM pg_indexes " +
+                "WHERE schemaname = current_schema() AND tablename = ? AND indexname NOT IN " +
+                "(SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass)", String.class, TABLE, TABLE);
+        List<String> foreignKeys = jdbcTemplate.queryForList("SELECT format('ALTER TABLE %I ADD CONSTRAINT %I %s', " +
+                "?, conname, pg_get_constraintdef(oid)) FROM pg_constraint WHERE conrelid = ?::regclass AND contype = 'f'",
+                String.class, TABLE, TABLE);
+        String primaryKey = jdbcTemplate.queryForObject("SELECT conname FROM pg_constraint " +
+                "WHERE conrelid = ?::regclass AND contype = 'p'", String.class, TABLE);
+        String sequence = jdbcTemplate.queryForObject("SELECT pg_get_serial_sequence(?, 'id')", String.class, TABLE);
+        LocalDateTime firstStart = jdbcTemplate.queryForObject("SELECT min(start_date) FROM bookings",
+                LocalDateTime.class);
+        YearMonth first = firstStart == null || YearMonth.from(firstStart).isAfter(YearMonth.now()) ?
+                YearMonth.now() : YearMonth.from(firstStart);
+
+        jdbcTemplate.execute("ALTER TABLE bookings RENAME TO " + legacy);
+        jdbcTemplate.execute("ALTER INDEX " + primaryKey + " RENAME TO " + legacy + "_pkey");
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RENAME TO " + legacy + "_id_seq");
+        jdbcTemplate.execute("CREATE TABLE bookings (LIKE " + legacy + " INCLUDING DEFAULTS INCLUDING IDENTITY, " +
+                "CONSTRAINT " + primaryKey + " PRIMARY KEY (id, start_date)) PARTITION BY RANGE (start_date)");
+        jdbcTemplate.execute("CREATE TABLE " + HISTORY + " PARTITION OF bookings FOR VALUES FROM (MINVALUE) " +
+                "TO (" + bound(first) + ") PARTITION BY RANGE (start_date)");
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT + " PARTITION OF bookings DEFAULT");
+        for (YearMonth month = first; !month.isAfter(until); month = month.plusMonths(1)) {
+            jdbcTemplate.execute(createPartition(month));
+        }
+        int moved = jdbcTemplate.update("INSERT INTO bookings OVERRIDING SYSTEM VALUE SELECT * FROM " + legacy);
+        jdbcTemplate.execute("DROP TABLE " + legacy);
+        indexes.forEach(jdbcTemplate::execute);
+        foreignKeys.forEach(jdbcTemplate::execute);
+        jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence('bookings', 'id'), " +
+                "coalesce(max(id), 0) + 1, false) FROM bookings", Long.class);
+        log.info("Таблица bookings секционирована по месяцам с {} по {}, перенесено {} бронирований",
+                first, until, moved);
+        return true;
+    }
+
+    /**
+     * Секция на месяц, если ее еще нет. Бронирования этого месяца, уже попавшие в bookings_default,
+     * переносятся в новую секцию
+     */
+    @Transactional
+    public boolean createIfMissing(YearMonth month) {
+        if (relkind(partition(month)) != null) {
+            return false;
+        }
+        Boolean inDefault = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT +
+                " WHERE " + range(month) + ")", Boolean.class);
+        if (Boolean.TRUE.equals(inDefault)) {
+            jdbcTemplate.execute("CREATE TEMP TABLE bookings_moved (LIKE bookings)");
+            jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT + " WHERE " + range(month) +
+                    " RETURNING *) INSERT INTO bookings_moved SELECT * FROM moved");
+            jdbcTemplate.execute(createPartition(month));
+            jdbcTemplate.update("INSERT INTO bookings OVERRIDING SYSTEM VALUE SELECT * FROM bookings_moved");
+            jdbcTemplate.execute("DROP TABLE bookings_moved");
+        } else {
+            jdbcTemplate.execute(createPartition(month));
+        }
+        log.info("Создана секция {}", partition(month));
+        return true;
+    }
+
+    /**
+     * Перенос в архив месяца, следующего за границей архива, если он не позже before и все его
+     * бронирования уже отмечены как PAST. Секция переписывается плотно (fillfactor 100, без мертвых строк,
+     * строки упорядочены по автору и дате начала) и подключается к bookings_history, граница архива
+     * сдвигается на месяц. Блокировка всей таблицы нужна только на время переподключения секций.
+     * Возвращает перенесенный месяц или null
+     */
+    @Transactional
+    public YearMonth archiveNext(YearMonth before) {
+        YearMonth month = historyUpperBound();
+        if (month == null || !month.isBefore(before) || relkind(partition(month)) == null) {
+            return null;
+        }
+        String partition = partition(month);
+        String archived = HISTORY + "_" + month.format(MONTH_SUFFIX);
+        jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+        Boolean unfinished = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + partition +
+                " WHERE time_state IS DISTINCT FROM " + BookingTimeState.PAST.ordinal() + ")", Boolean.class);
+        if (Boolean.TRUE.equals(unfinished)) {
+            log.debug("В секции {} есть незавершенные бронирования, перенос в архив отложен", partition);
+            return null;
+        }
+        jdbcTemplate.execute("CREATE TABLE " + archived + " (LIKE " + partition + " INCLUDING DEFAULTS) " +
+                "WITH (fillfactor = 100)");
+        int rows = jdbcTemplate.update("INSERT INTO " + archived + " SELECT * FROM " + partition +
+                " ORDER BY booker_id, start_date");
+        jdbcTemplate.execute("ALTER TABLE bookings DETACH PARTITION " + HISTORY);
+        jdbcTemplate.execute("ALTER TABLE bookings DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        jdbcTemplate.execute("ALTER TABLE " + HISTORY + " ATTACH PARTITION " + archived + " FOR VALUES " +
+                "FROM (" + bound(month) + ") TO (" + bound(month.plusMonths(1)) + ")");
+        jdbcTemplate.execute("ALTER TABLE bookings ATTACH PARTITION " + HISTORY + " FOR VALUES " +
+                "FROM (MINVALUE) TO (" + bound(month.plusMonths(1)) + ")");
+        log.info("Секция {} перенесена в архив ({} бронирований)", partition, rows);
+        return month;
+    }
+
+    /**
+     * Первый месяц после архива: граница bookings_history, у которой всегда первое число месяца
+     */
+    YearMonth historyUpperBound() {
+        if (!"p".equals(relkind(TABLE))) {
+            return null;
+        }
+        List<String> bounds = jdbcTemplate.queryForList("SELECT pg_get_expr(relpartbound, oid) FROM pg_class " +
+                "WHERE oid = to_regclass(?)", String.class, HISTORY);
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        Matcher matcher = UPPER_BOUND.matcher(bounds.get(0));
+        if (!matcher.find()) {
+            throw new IllegalStateException("Не удалось разобрать границу секции " + HISTORY + ": " + bounds.get(0));
+        }
+        return YearMonth.from(LocalDateTime.parse(matcher.group(1), BOUND));
+    }
+
+    private String relkind(String table) {
+        List<String> kinds = jdbcTemplate.queryForList("SELECT relkind::text FROM pg_class WHERE oid = to_regclass(?)",
+                String.class, table);
+        return kinds.isEmpty() ? null : kinds.get(0);
+    }
+
+    private static String createPartition(YearMonth month) {
+        return "CREATE TABLE " + partition(month) + " PARTITION OF bookings FOR VALUES " +
+                "FROM (" + bound(month) + ") TO (" + bound(month.plusMonths(1)) + ")";
+    }
+
+    private static String partition(YearMonth month) {
+        return TABLE + "_" + month.format(MONTH_SUFFIX);
+    }
+
+    private static String range(YearMonth month) {
+        return "start_date >= " + bound(month) + " AND start_date < " + bound(month.plusMonths(1));
+    }
+
+    private static String bound(YearMonth month) {
+        return "'" + month.atDay(1).atStartOfDay().format(BOUND) + "'";
+    }
+}
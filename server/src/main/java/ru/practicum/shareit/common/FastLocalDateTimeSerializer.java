@@ -0,0 +1,83 @@
+package ru.practicum.shareit.common;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Запись LocalDateTime в том же виде, что и DateTimeFormatter.ISO_LOCAL_DATE_TIME (2030-01-08T10:00:00,
+ * дробная часть секунды без завершающих нулей), но без DateTimeFormatter и промежуточной строки.
+ * Поля с @JsonFormat и режим WRITE_DATES_AS_TIMESTAMPS обрабатываются стандартным сериализатором
+ */
+public class FastLocalDateTimeSerializer extends StdSerializer<LocalDateTime> implements ContextualSerializer {
+    private static final int MAX_LENGTH = 29;
+
+    public FastLocalDateTimeSerializer() {
+        super(LocalDateTime.class);
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property)
+            throws JsonMappingException {
+        JsonFormat.Value format = findFormatOverrides(provider, property, handledType());
+        if (format != null && (format.hasPattern() || format.hasShape() && format.getShape() != JsonFormat.Shape.STRING)) {
+            return LocalDateTimeSerializer.INSTANCE.createContextual(provider, property);
+        }
+        return this;
+    }
+
+    @Override
+    public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+            LocalDateTimeSerializer.INSTANCE.serialize(value, generator, provider);
+            return;
+        }
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            generator.writeString(value.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return;
+        }
+        char[] buffer = new char[MAX_LENGTH];
+        int length = writeDigits(buffer, 0, year, 4);
+        buffer[length++] = '-';
+        length = writeDigits(buffer, length, value.getMonthValue(), 2);
+        buffer[length++] = '-';
+        length = writeDigits(buffer, length, value.getDayOfMonth(), 2);
+        buffer[length++] = 'T';
+        length = writeDigits(buffer, length, value.getHour(), 2);
+        buffer[length++] = ':';
+        length = writeDigits(buffer, length, value.getMinute(), 2);
+        buffer[length++] = ':';
+        length = writeDigits(buffer, length, value.getSecond(), 2);
+        int nano = value.getNano();
+        if (nano > 0) {
+            buffer[length++] = '.';
+            int digits = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                digits--;
+            }
+            length = writeDigits(buffer, length, nano, digits);
+        }
+        generator.writeString(buffer, 0, length);
+    }
+
+    private static int writeDigits(char[] buffer, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return offset + digits;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.common;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Блокировка фоновых задач через таблицу scheduled_jobs, чтобы при нескольких узлах задача выполнялась только на одном.
+ * Блокировка снимается сама по истечении lockAtMostFor, если узел упал, не освободив ее
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobLockService {
+    private static final String NODE_ID = ManagementFactory.getRuntimeMXBean().getName();
+    private final ScheduledJobRepository scheduledJobRepository;
+
+    public boolean tryLock(String jobName, Duration lockAtMostFor) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lockedUntil = now.plus(lockAtMostFor);
+        if (scheduledJobRepository.acquire(jobName, NODE_ID, lockedUntil, now) > 0) {
+            return true;
+        }
+        if (scheduledJobRepository.existsById(jobName)) {
+            return false;
+        }
+        try {
+            scheduledJobRepository.saveAndFlush(new ScheduledJob(jobName, lockedUntil, NODE_ID));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Блокировку задачи {} захватил другой узел", jobName);
+            return false;
+        }
+    }
+
+    public void unlock(String jobName) {
+        scheduledJobRepository.release(jobName, NODE_ID, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.common;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Потоковая выгрузка в формате NDJSON: по одному JSON-объекту на строку.
+ * Строки читаются курсором в read-only транзакции, контекст персистентности периодически очищается,
+ * поэтому расход памяти не зависит от объема выгрузки
+ */
+@Component
+public class NdjsonExporter {
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int clearEvery;
+
+    public NdjsonExporter(ObjectMapper objectMapper,
+                          EntityManager entityManager,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${shareit.export.clear-every:500}") int clearEvery) {
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.clearEvery = clearEvery;
+    }
+
+    public <E> ResponseEntity<StreamingResponseBody> export(Supplier<Stream<E>> source, Function<E, ?> mapper) {
+        StreamingResponseBody body = outputStream -> transactionTemplate.executeWithoutResult(status ->
+                write(source, mapper, outputStream));
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private <E> void write(Supplier<Stream<E>> source, Function<E, ?> mapper, OutputStream outputStream) {
+        try (Stream<E> rows = source.get();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            int count = 0;
+            for (E row : (Iterable<E>) rows::iterator) {
+                Object value = mapper.apply(row);
+                writerFor(value.getClass()).writeValue(generator, value);
+                generator.writeRaw('\n');
+                if (++count % clearEvery == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка записи выгрузки", e);
+        }
+    }
+
+    private ObjectWriter writerFor(Class<?> type) {
+        return writers.computeIfAbsent(type, objectMapper::writerFor);
+    }
+}
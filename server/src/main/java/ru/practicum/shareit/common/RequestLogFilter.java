@@ -0,0 +1,96 @@
+package ru.practicum.shareit.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Журнал запросов: одна строка на запрос с методом, шаблоном пути, статусом и временем обработки вместо тел запросов.
+ * Успешные запросы записываются выборочно, ошибки и медленные запросы - всегда
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "shareit.request-log.enabled", havingValue = "true", matchIfMissing = true)
+public class RequestLogFilter extends OncePerRequestFilter {
+    private final RequestLogProperties properties;
+
+    public RequestLogFilter(RequestLogProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new CompletionListener(start));
+            } else {
+                logRequest(request, response.getStatus(), start);
+            }
+        }
+    }
+
+    private void logRequest(HttpServletRequest request, int status, long start) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern == null ? request.getRequestURI() : pattern);
+        boolean always = status >= 400 || latencyMillis >= properties.getSlowThreshold().toMillis();
+        if (!always && !sampled(endpoint)) {
+            return;
+        }
+        log.info("endpoint=\"{}\" status={} latency_ms={} user={}", endpoint, status, latencyMillis,
+                request.getHeader("X-Sharer-User-Id"));
+    }
+
+    private boolean sampled(String endpoint) {
+        double rate = properties.getEndpointSampleRates().getOrDefault(endpoint, properties.getSampleRate());
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /**
+     * Для потоковых ответов строка пишется по завершении асинхронной обработки
+     */
+    private class CompletionListener implements AsyncListener {
+        private final long start;
+
+        CompletionListener(long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            logRequest((HttpServletRequest) event.getSuppliedRequest(),
+                    ((HttpServletResponse) event.getSuppliedResponse()).getStatus(), start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.common;
+
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Строка блокировки фоновой задачи: задачу выполняет только тот узел, который успел продлить lockedUntil
+ */
+@Entity
+@Table(name = "scheduled_jobs")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ScheduledJob {
+    @Id
+    private String name;
+
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.common;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface ScheduledJobRepository extends JpaRepository<ScheduledJob, String> {
+    @Transactional
+    @Modifying
+    @Query("update ScheduledJob j set j.lockedUntil = ?3, j.lockedBy = ?2 " +
+            "where j.name = ?1 and j.lockedUntil <= ?4")
+    int acquire(String name, String lockedBy, LocalDateTime lockedUntil, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update ScheduledJob j set j.lockedUntil = ?3 " +
+            "where j.name = ?1 and j.lockedBy = ?2")
+    int release(String name, String lockedBy, LocalDateTime now);
+}
@@ -0,0 +1,120 @@
+package ru.practicum.shareit.events;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Шина событий внутри server. События публикуются после фиксации транзакции и рассылаются
+ * подписанным gateway одним потоком SSE на каждый gateway; распределение по клиентам выполняет gateway.
+ * Очередь рассылки ограничена: при переполнении самые старые события отбрасываются, а не тормозят запись.
+ * Шина рассылает только изменения, зафиксированные на этом узле; gateway подписывается на все узлы
+ */
+@Component
+@Slf4j
+public class EventBus {
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor dispatcher;
+
+    public EventBus(@Value("${shareit.events.queue-capacity:10000}") int queueCapacity) {
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "event-bus");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.DiscardOldestPolicy());
+    }
+
+    /**
+     * Публикация после фиксации текущей транзакции; вне транзакции событие публикуется сразу
+     */
+    public void publishAfterCommit(EventType type, Set<Long> userIds, Object payload) {
+        if (subscribers.isEmpty() || userIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(type, userIds, payload);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(type, userIds, payload);
+            }
+        });
+    }
+
+    public boolean hasSubscribers() {
+        return !subscribers.isEmpty();
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        log.info("Подключен получатель событий, всего {}", subscribers.size());
+        return emitter;
+    }
+
+    private void publish(EventType type, Set<Long> userIds, Object payload) {
+        ServerEvent event = ServerEvent.builder()
+                .id(sequence.incrementAndGet())
+                .type(type)
+                .userIds(userIds)
+                .payload(payload)
+                .build();
+        dispatcher.execute(() -> send(event));
+    }
+
+    /**
+     * Комментарий в потоке, чтобы gateway и промежуточные прокси не считали соединение зависшим.
+     * Идет через ту же очередь, что и события, и не перемешивается с ними
+     */
+    @Scheduled(fixedDelayString = "${shareit.events.heartbeat-interval:15000}")
+    public void heartbeat() {
+        if (!subscribers.isEmpty()) {
+            dispatcher.execute(() -> send(() -> SseEmitter.event().comment("")));
+        }
+    }
+
+    private void send(ServerEvent event) {
+        send(() -> SseEmitter.event()
+                .id(String.valueOf(event.getId()))
+                .name(event.getType().name())
+                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    private void send(Supplier<SseEmitter.SseEventBuilder> event) {
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(event.get());
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Получатель событий отключился: {}", e.getMessage());
+                subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.events;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequiredArgsConstructor
+@Slf4j
+public class EventController {
+    private final EventBus eventBus;
+
+    /**
+     * GET /events — поток SSE всех событий server для gateway, каждое событие содержит своих получателей
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        log.debug("Получен запрос GET /events");
+        return eventBus.subscribe();
+    }
+}
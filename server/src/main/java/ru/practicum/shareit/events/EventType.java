@@ -0,0 +1,7 @@
+package ru.practicum.shareit.events;
+
+public enum EventType {
+    REQUEST_ITEM_ADDED,
+    BOOKING_CREATED,
+    BOOKING_STATUS_CHANGED
+}
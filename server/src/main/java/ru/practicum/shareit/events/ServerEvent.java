@@ -0,0 +1,18 @@
+package ru.practicum.shareit.events;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Событие для gateway: тип, пользователи, которым его нужно доставить, и тело в том виде, в котором его получит клиент
+ */
+@Getter
+@Builder
+public class ServerEvent {
+    private long id;
+    private EventType type;
+    private Set<Long> userIds;
+    private Object payload;
+}
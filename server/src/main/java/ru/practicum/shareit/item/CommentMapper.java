@@ -5,6 +5,9 @@ import ru.practicum.shareit.item.dto.CommentDtoRequest;
 import ru.practicum.shareit.item.dto.CommentDtoResponse;
 import ru.practicum.shareit.item.model.Comment;
 
+import java.util.List;
+import java.util.stream.Collectors;
+
 @UtilityClass
 public class CommentMapper {
     public Comment toComment(CommentDtoRequest commentDtoRequest) {
@@ -22,5 +25,7 @@ public class CommentMapper {
                 .build();
     }
 
-
+    public List<CommentDtoResponse> toCommentDtoResponseList(List<Comment> comments) {
+        return comments.stream().map(CommentMapper::toCommentDtoResponse).collect(Collectors.toList());
+    }
 }
@@ -1,14 +1,50 @@
 package ru.practicum.shareit.item;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.item.model.Comment;
-import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByItemIn(List<Item> items, Sort sort);
+    @Query(" select c from Comment c join fetch c.author " +
+            "where c.id in ?1")
+    List<Comment> findByIdIn(Collection<Long> ids, Sort sort);
 
-    List<Comment> findByItem(Item item, Sort sort);
+    /**
+     * Отзывы о вещи вместе с авторами, новые первыми. Порядок совпадает с индексом idx_comments_item_created_id
+     */
+    @Query(" select c from Comment c join fetch c.author " +
+            "where c.item.id = ?1 " +
+            "order by c.created desc, c.id desc")
+    List<Comment> findByItemId(long itemId, Pageable page);
+
+    /**
+     * Следующая страница отзывов о вещи после отзыва afterId: поиск по ключу (created, id) вместо пропуска строк
+     */
+    @Query(" select c from Comment c join fetch c.author " +
+            "where c.item.id = ?1 " +
+            "and (c.created < (select a.created from Comment a where a.id = ?2) " +
+            "or c.created = (select a.created from Comment a where a.id = ?2) and c.id < ?2) " +
+            "order by c.created desc, c.id desc")
+    List<Comment> findByItemIdAfter(long itemId, long afterId, Pageable page);
+
+    /**
+     * Id не более limit самых новых отзывов каждой из вещей
+     */
+    @Query(nativeQuery = true, value = "select id from (" +
+            "select c.id, row_number() over (partition by c.item_id order by c.created desc, c.id desc) as rn " +
+            "from comments c where c.item_id in ?1) ranked " +
+            "where rn <= ?2")
+    List<Long> findNewestIds(Collection<Long> itemIds, int limit);
+
+    long countByItemId(long itemId);
+
+    @Query(" select c.item.id as itemId, count(c) as commentsCount from Comment c " +
+            "where c.item.id in ?1 " +
+            "group by c.item.id")
+    List<CommentsCount> countByItemIdIn(Collection<Long> itemIds);
 }
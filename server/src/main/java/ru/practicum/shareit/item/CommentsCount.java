@@ -0,0 +1,10 @@
+package ru.practicum.shareit.item;
+
+/**
+ * Количество отзывов о вещи
+ */
+public interface CommentsCount {
+    Long getItemId();
+
+    long getCommentsCount();
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.item;
+
+import lombok.Value;
+import ru.practicum.shareit.booking.dto.BookingSimpleDto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Последнее и следующее подтвержденные бронирования вещи для ее владельца.
+ * Действительны до начала следующего бронирования: в этот момент оно становится последним
+ */
+@Value
+class ItemBookingOverlay {
+    BookingSimpleDto lastBooking;
+    BookingSimpleDto nextBooking;
+    LocalDateTime validUntil;
+
+    boolean isValidAt(LocalDateTime now) {
+        return validUntil == null || now.isBefore(validUntil);
+    }
+}
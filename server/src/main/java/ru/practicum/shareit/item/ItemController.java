@@ -2,11 +2,15 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.common.NdjsonExporter;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.UserExistenceGuard;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -21,11 +25,13 @@ import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
 public class ItemController {
     private static final String ITEM_ID = "itemId";
     private final ItemService itemService;
+    private final UserExistenceGuard userExistenceGuard;
+    private final NdjsonExporter ndjsonExporter;
 
     @PostMapping
     public ItemDtoResponse add(@RequestHeader(X_SHARER_USER_ID) long userId,
                                @RequestBody ItemDtoRequest itemDto) {
-        log.info("Получен запрос POST /items с параметрами userId = {}, dto = {}", userId, itemDto);
+        log.debug("Получен запрос POST /items с параметрами userId = {}, dto = {}", userId, itemDto);
         Item createdItem = itemService.add(ItemMapper.toItemRequest(itemDto), userId);
         return ItemMapper.toItemDtoResponse(createdItem);
     }
@@ -34,7 +40,7 @@ public class ItemController {
     public ItemDtoResponse update(@RequestHeader(X_SHARER_USER_ID) long userId,
                                   @PathVariable(ITEM_ID) Long id,
                                   @RequestBody ItemDtoRequest itemDtoRequest) {
-        log.info("Получен запрос PATCH /items/{itemId} с параметрами userId = {}, itemId = {}, dto = {}",
+        log.debug("Получен запрос PATCH /items/{itemId} с параметрами userId = {}, itemId = {}, dto = {}",
                 userId, id, itemDtoRequest);
         Item updatedItem =  itemService.update(ItemMapper.toItemRequest(itemDtoRequest, id), userId);
         return ItemMapper.toItemDtoResponse(updatedItem);
@@ -43,37 +49,60 @@ public class ItemController {
     @GetMapping("/{itemId}")
     public ItemDtoWithBookingDateResponse get(@RequestHeader(X_SHARER_USER_ID) long userId,
                                               @PathVariable(ITEM_ID) long id) {
-        log.info("Получен запрос GET /items/{itemId} с параметрами userId = {}, itemId = {}", userId, id);
-        Item item = itemService.get(id, userId);
-        return ItemMapper.toItemDtoWithBookingDateResponse(item);
+        log.debug("Получен запрос GET /items/{itemId} с параметрами userId = {}, itemId = {}", userId, id);
+        return itemService.getDetail(id, userId);
     }
 
     @GetMapping
     public List<ItemDtoWithBookingDateResponse> getAllByUser(@RequestHeader(X_SHARER_USER_ID) long userId,
                                                              @RequestParam(required = false) Integer from,
                                                              @RequestParam(required = false) Integer size) {
-        log.info("Получен запрос GET /items?from={from}&size={size} с параметрами userId = {}, from = {}, size = {}",
+        log.debug("Получен запрос GET /items?from={from}&size={size} с параметрами userId = {}, from = {}, size = {}",
                 userId, from, size);
         List<Item> items = itemService.getAllByUser(userId, from, size);
         return items.stream().map(ItemMapper::toItemDtoWithBookingDateResponse).collect(Collectors.toList());
     }
 
+    /**
+     * GET /items/export — потоковая выгрузка всех вещей текущего пользователя в формате NDJSON
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(X_SHARER_USER_ID) long userId) {
+        log.debug("Получен запрос GET /items/export с параметрами userId = {}", userId);
+        userExistenceGuard.requireExists(userId);
+        return ndjsonExporter.export(() -> itemService.streamAllByUser(userId), ItemMapper::toItemDtoResponse);
+    }
+
     @GetMapping("/search")
     public List<ItemDtoResponse> search(@RequestHeader(X_SHARER_USER_ID) long userId,
                                         @RequestParam String text,
                                         @RequestParam(required = false) Integer from,
                                         @RequestParam(required = false) Integer size) {
-        log.info("Получен запрос GET /items/search?text={text}&from={from}&size={size} с параметрами " +
+        log.debug("Получен запрос GET /items/search?text={text}&from={from}&size={size} с параметрами " +
                 "userId = {}, text = {}, from = {}, size = {}", userId, text, from, size);
         List<Item> items = itemService.searchByText(text, from, size);
         return ItemMapper.toItemDtoResponseList(items);
     }
 
+    /**
+     * GET /items/{itemId}/comments?after={commentId}&size={size} — отзывы о вещи, новые первыми.
+     * Следующая страница запрашивается с after, равным id последнего полученного отзыва
+     */
+    @GetMapping("/{itemId}/comments")
+    public List<CommentDtoResponse> getComments(@RequestHeader(X_SHARER_USER_ID) long userId,
+                                                @PathVariable(ITEM_ID) long itemId,
+                                                @RequestParam(required = false) Long after,
+                                                @RequestParam(required = false) Integer size) {
+        log.debug("Получен запрос GET /items/{itemId}/comments?after={after}&size={size} с параметрами " +
+                "userId = {}, itemId = {}, after = {}, size = {}", userId, itemId, after, size);
+        return CommentMapper.toCommentDtoResponseList(itemService.getComments(itemId, after, size));
+    }
+
     @PostMapping("/{itemId}/comment")
     public CommentDtoResponse createComment(@RequestHeader(X_SHARER_USER_ID) long userId,
                                             @PathVariable(ITEM_ID) long itemId,
                                             @RequestBody CommentDtoRequest commentDtoRequest) {
-        log.info("Получен запрос POST /items/{itemId}/comment с параметрами userId = {}, itemId = {}, dto = {}",
+        log.debug("Получен запрос POST /items/{itemId}/comment с параметрами userId = {}, itemId = {}, dto = {}",
                 userId, itemId, commentDtoRequest);
         Comment newComment = itemService.createComment(CommentMapper.toComment(commentDtoRequest), userId, itemId);
         return CommentMapper.toCommentDtoResponse(newComment);
@@ -0,0 +1,128 @@
+package ru.practicum.shareit.item;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.item.dto.ItemDtoWithBookingDateResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш карточки вещи для GET /items/{itemId} в два уровня: общая для всех часть (вещь, новые отзывы и их число)
+ * и бронирования, которые видит только владелец. Записи хранятся в ограниченных LRU-отображениях.
+ * Изменения сбрасывают записи сразу и еще раз после фиксации транзакции. Данные, прочитанные до сброса,
+ * в кэш не попадают: запись принимается, только если с момента stamp() сбросов не было.
+ * Сброс действует только на этом узле, поэтому записи живут не дольше ttl: изменения, сделанные
+ * на других узлах server, видны в карточке не позже чем через ttl
+ */
+@Component
+public class ItemDetailCache {
+    private final Map<Long, Entry<ItemDtoWithBookingDateResponse>> items;
+    private final Map<Long, Entry<ItemBookingOverlay>> bookings;
+    private final long ttlNanos;
+    private long invalidations;
+
+    public ItemDetailCache(@Value("${shareit.items.detail-cache.max-size:10000}") int maxSize,
+                           @Value("${shareit.items.detail-cache.ttl:PT30S}") Duration ttl) {
+        this.items = lruMap(maxSize);
+        this.bookings = lruMap(maxSize);
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    synchronized long stamp() {
+        return invalidations;
+    }
+
+    ItemDtoWithBookingDateResponse getItem(long itemId) {
+        return fresh(items.get(itemId));
+    }
+
+    synchronized void putItem(long itemId, ItemDtoWithBookingDateResponse item, long stamp) {
+        if (stamp == invalidations) {
+            items.put(itemId, new Entry<>(item, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    ItemBookingOverlay getBookings(long itemId, LocalDateTime now) {
+        ItemBookingOverlay overlay = fresh(bookings.get(itemId));
+        return overlay != null && overlay.isValidAt(now) ? overlay : null;
+    }
+
+    synchronized void putBookings(long itemId, ItemBookingOverlay overlay, long stamp) {
+        if (stamp == invalidations) {
+            bookings.put(itemId, new Entry<>(overlay, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    /**
+     * Сброс вещи и ее отзывов, например после изменения вещи или нового отзыва
+     */
+    public void evictItem(long itemId) {
+        evictNowAndAfterCommit(() -> {
+            items.remove(itemId);
+            bookings.remove(itemId);
+        });
+    }
+
+    /**
+     * Сброс бронирований вещи после подтверждения, отклонения или удаления бронирования
+     */
+    public void evictBookings(long itemId) {
+        evictNowAndAfterCommit(() -> bookings.remove(itemId));
+    }
+
+    /**
+     * Полный сброс, например после изменения пользователя, чье имя есть в карточках как владельца или автора отзыва
+     */
+    public void clear() {
+        evictNowAndAfterCommit(() -> {
+            items.clear();
+            bookings.clear();
+        });
+    }
+
+    private void evictNowAndAfterCommit(Runnable eviction) {
+        evict(eviction);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(eviction);
+                }
+            });
+        }
+    }
+
+    private synchronized void evict(Runnable eviction) {
+        invalidations++;
+        eviction.run();
+    }
+
+    private static <V> V fresh(Entry<V> entry) {
+        return entry != null && System.nanoTime() - entry.expiresAtNanos < 0 ? entry.value : null;
+    }
+
+    private static <V> Map<Long, V> lruMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+
+        private Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package ru.practicum.shareit.item;
 
 import lombok.experimental.UtilityClass;
+import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.dto.BookingSimpleDto;
 import ru.practicum.shareit.item.dto.ItemDtoRequest;
 import ru.practicum.shareit.item.dto.ItemDtoResponse;
@@ -61,22 +62,21 @@ public class ItemMapper {
                 .id(item.getId())
                 .request(requestDto)
                 .available(item.getAvailable())
-                .nextBooking(item.getNextBooking() == null ? null : BookingSimpleDto.builder()
-                        .id(item.getNextBooking().getId())
-                        .itemId(item.getNextBooking().getItem().getId())
-                        .bookerId(item.getNextBooking().getBooker().getId())
-                        .start(item.getNextBooking().getStart())
-                        .end(item.getNextBooking().getEnd())
-                        .build())
-                .lastBooking(item.getLastBooking() == null ? null : BookingSimpleDto.builder()
-                        .id(item.getLastBooking().getId())
-                        .itemId(item.getLastBooking().getItem().getId())
-                        .bookerId(item.getLastBooking().getBooker().getId())
-                        .start(item.getLastBooking().getStart())
-                        .end(item.getLastBooking().getEnd())
-                        .build())
+                .nextBooking(toBookingSimpleDto(item.getNextBooking()))
+                .lastBooking(toBookingSimpleDto(item.getLastBooking()))
                 .comments(item.getComments() == null ? null :
                     item.getComments().stream().map(CommentMapper::toCommentDtoResponse).collect(Collectors.toList()))
+                .commentsCount(item.getCommentsCount())
+                .build();
+    }
+
+    public BookingSimpleDto toBookingSimpleDto(Booking booking) {
+        return booking == null ? null : BookingSimpleDto.builder()
+                .id(booking.getId())
+                .itemId(booking.getItem().getId())
+                .bookerId(booking.getBooker().getId())
+                .start(booking.getStart())
+                .end(booking.getEnd())
                 .build();
     }
 
@@ -4,10 +4,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.Request;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
 
@@ -31,7 +36,16 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
             "where u.id = ?1 order by i.id asc")
     List<Item> findAllByOwnerId(long ownerId);
 
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(" select i from Item i join fetch i.owner as u " +
+            "where u.id = ?1 order by i.id asc")
+    Stream<Item> streamAllByOwnerId(long ownerId);
+
+    @Query(" select i from Item i join fetch i.owner " +
+            "where i.request in ?1")
     List<Item> findByRequestIn(List<Request> requests);
 
+    @Query(" select i from Item i join fetch i.owner " +
+            "where i.request = ?1")
     List<Item> findByRequest(Request requests);
 }
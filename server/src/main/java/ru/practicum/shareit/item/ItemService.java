@@ -1,10 +1,12 @@
 package ru.practicum.shareit.item;
 
 import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.item.dto.ItemDtoWithBookingDateResponse;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ItemService {
     Item add(Item item, long ownerId);
@@ -13,11 +15,17 @@ public interface ItemService {
 
     Item get(long id, long userId);
 
+    ItemDtoWithBookingDateResponse getDetail(long id, long userId);
+
     List<Item> getAllByUser(Long userId, Integer from, Integer size);
 
+    Stream<Item> streamAllByUser(long userId);
+
     List<Item> searchByText(String text, Integer from, Integer size);
 
     List<Booking> getBookingByItem(Item item);
 
+    List<Comment> getComments(long itemId, Long after, Integer size);
+
     Comment createComment(Comment toComment, long userId, long itemId);
 }
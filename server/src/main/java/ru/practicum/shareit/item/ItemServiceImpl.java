@@ -1,8 +1,8 @@
 package ru.practicum.shareit.item;
 
-import com.querydsl.core.types.dsl.BooleanExpression;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -12,12 +12,20 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.Booking;
 import ru.practicum.shareit.booking.BookingRepository;
 import ru.practicum.shareit.booking.BookingStatus;
-import ru.practicum.shareit.booking.QBooking;
 import ru.practicum.shareit.common.EntityNotFoundException;
 import ru.practicum.shareit.common.ValidationException;
+import ru.practicum.shareit.events.EventBus;
+import ru.practicum.shareit.events.EventType;
+import ru.practicum.shareit.item.dto.ItemDtoResponse;
+import ru.practicum.shareit.item.dto.ItemDtoWithBookingDateResponse;
 import ru.practicum.shareit.item.exceptions.ItemIncorrectOwnerException;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.outbox.AggregateType;
+import ru.practicum.shareit.outbox.OutboxEventType;
+import ru.practicum.shareit.outbox.OutboxService;
+import ru.practicum.shareit.request.RequestRepository;
+import ru.practicum.shareit.user.UserExistenceGuard;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.model.User;
 
@@ -25,19 +33,32 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ItemServiceImpl implements ItemService {
+    private static final Sort COMMENTS_ORDER = Sort.by(DESC, "created").and(Sort.by(DESC, "id"));
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
+    private final OutboxService outboxService;
+    private final EventBus eventBus;
+    private final RequestRepository requestRepository;
+    private final UserExistenceGuard userExistenceGuard;
+    private final ItemDetailCache itemDetailCache;
+    @Value("${shareit.items.comments-limit:10}")
+    private int commentsLimit;
+    @Value("${shareit.items.comments-max-page-size:100}")
+    private int commentsMaxPageSize;
 
     @Transactional
     @Override
@@ -46,7 +67,14 @@ public class ItemServiceImpl implements ItemService {
                     throw new EntityNotFoundException("Пользователь с id = " + ownerId + " не существует");
         });
         item.setOwner(owner);
-        return itemRepository.save(item);
+        Item savedItem = itemRepository.save(item);
+        ItemDtoResponse itemDto = ItemMapper.toItemDtoResponse(savedItem);
+        outboxService.record(AggregateType.ITEM, savedItem.getId(), OutboxEventType.ITEM_CREATED, itemDto);
+        if (savedItem.getRequest() != null) {
+            requestRepository.findRequesterId(savedItem.getRequest().getId()).ifPresent(requesterId ->
+                    eventBus.publishAfterCommit(EventType.REQUEST_ITEM_ADDED, Set.of(requesterId), itemDto));
+        }
+        return savedItem;
     }
 
     @Transactional
@@ -74,6 +102,9 @@ public class ItemServiceImpl implements ItemService {
         if (item.getOwner() != null) {
             oldItem.setOwner(item.getOwner());
         }
+        outboxService.record(AggregateType.ITEM, oldItem.getId(), OutboxEventType.ITEM_UPDATED,
+                ItemMapper.toItemDtoResponse(oldItem));
+        itemDetailCache.evictItem(oldItem.getId());
         return oldItem;
     }
 
@@ -83,44 +114,134 @@ public class ItemServiceImpl implements ItemService {
         Item item = itemRepository.findById(id).orElseThrow(() -> {
                     throw new EntityNotFoundException("Вещь с id = " + id + " не найдена");
         });
-        item.setComments(commentRepository.findByItem(item, Sort.by(DESC, "created")));
+        List<Comment> comments = commentRepository.findByItemId(id, PageRequest.of(0, commentsLimit));
+        item.setComments(comments);
+        item.setCommentsCount(comments.size() < commentsLimit ? comments.size() : commentRepository.countByItemId(id));
         List<Booking> bookings = bookingRepository.findByItemAndStatusOrderByStartAsc(item, BookingStatus.APPROVED);
         item.setNextBooking(item.getOwner().getId() == userId ? getNextBookingByItem(bookings, now) : null);
         item.setLastBooking(item.getOwner().getId() == userId ? getLastBookingByItem(bookings, now) : null);
         return item;
     }
 
+    /**
+     * Карточка вещи через ItemDetailCache. Общая часть читается из базы при промахе, бронирования - только
+     * для владельца и только при промахе или после начала следующего бронирования
+     */
+    @Override
+    public ItemDtoWithBookingDateResponse getDetail(long id, long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        long stamp = itemDetailCache.stamp();
+        ItemDtoWithBookingDateResponse itemDto = itemDetailCache.getItem(id);
+        if (itemDto == null) {
+            Item item = itemRepository.findById(id).orElseThrow(() -> {
+                throw new EntityNotFoundException("Вещь с id = " + id + " не найдена");
+            });
+            List<Comment> comments = commentRepository.findByItemId(id, PageRequest.of(0, commentsLimit));
+            item.setComments(comments);
+            item.setCommentsCount(comments.size() < commentsLimit ? comments.size() : commentRepository.countByItemId(id));
+            itemDto = ItemMapper.toItemDtoWithBookingDateResponse(item);
+            itemDto.setComments(List.copyOf(itemDto.getComments()));
+            itemDetailCache.putItem(id, itemDto, stamp);
+        }
+        if (itemDto.getOwner().getId() != userId) {
+            return itemDto;
+        }
+        ItemBookingOverlay overlay = itemDetailCache.getBookings(id, now);
+        if (overlay == null) {
+            List<Booking> bookings = bookingRepository.findByItemAndStatusOrderByStartAsc(
+                    itemRepository.getReferenceById(id), BookingStatus.APPROVED);
+            Booking nextBooking = getNextBookingByItem(bookings, now);
+            overlay = new ItemBookingOverlay(ItemMapper.toBookingSimpleDto(getLastBookingByItem(bookings, now)),
+                    ItemMapper.toBookingSimpleDto(nextBooking), nextBooking == null ? null : nextBooking.getStart());
+            itemDetailCache.putBookings(id, overlay, stamp);
+        }
+        return itemDto.toBuilder()
+                .lastBooking(overlay.getLastBooking())
+                .nextBooking(overlay.getNextBooking())
+                .build();
+    }
+
     @Override
     public List<Item> getAllByUser(Long userId, Integer from, Integer size) {
         Boolean byPage = (from != null && size != null && from >= 0 && size >= 1);
         LocalDateTime now = LocalDateTime.now();
-        User user = userRepository.findById(userId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Пользователь с id = " + userId + " не существует");
-        });
+        userExistenceGuard.requireExists(userId);
 
         List<Item> items;
         if (byPage) {
             Pageable page = PageRequest.of(from / size, size, Sort.by("id").ascending());
-            Page<Item> itemsPage = itemRepository.findAllByOwnerId(user.getId(), page);
+            Page<Item> itemsPage = itemRepository.findAllByOwnerId(userId, page);
             items = itemsPage.getContent();
         } else {
-            items = itemRepository.findAllByOwnerId(user.getId());
+            items = itemRepository.findAllByOwnerId(userId);
         }
 
-        Map<Item, List<Comment>> comments = commentRepository.findByItemIn(items, Sort.by(DESC, "created"))
-                .stream()
-                .collect(groupingBy(Comment::getItem, toList()));
+        setNewestComments(items);
         Map<Item, List<Booking>> bookings = bookingRepository.findByItemInAndStatusOrderByStartAsc(items, BookingStatus.APPROVED)
                 .stream()
                 .collect(groupingBy(Booking::getItem, toList()));
 
-        items.forEach(x -> x.setComments(comments.get(x)));
         items.forEach(item -> item.setLastBooking(getLastBookingByItem(bookings.get(item), now)));
         items.forEach(item -> item.setNextBooking(getNextBookingByItem(bookings.get(item), now)));
 
         return items;
     }
 
+    /**
+     * Не более commentsLimit новых отзывов для каждой вещи и общее число отзывов. Отдельный подсчет нужен
+     * только для вещей, у которых отзывов набралось ровно на лимит
+     */
+    private void setNewestComments(List<Item> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Long> itemIds = items.stream().map(Item::getId).collect(toList());
+        List<Long> commentIds = commentRepository.findNewestIds(itemIds, commentsLimit);
+        Map<Long, List<Comment>> comments = commentIds.isEmpty() ? Collections.emptyMap() :
+                commentRepository.findByIdIn(commentIds, COMMENTS_ORDER)
+                        .stream()
+                        .collect(groupingBy(comment -> comment.getItem().getId(), toList()));
+        List<Long> saturatedIds = comments.entrySet().stream()
+                .filter(entry -> entry.getValue().size() >= commentsLimit)
+                .map(Map.Entry::getKey)
+                .collect(toList());
+        Map<Long, Long> counts = saturatedIds.isEmpty() ? Collections.emptyMap() :
+                commentRepository.countByItemIdIn(saturatedIds)
+                        .stream()
+                        .collect(toMap(CommentsCount::getItemId, CommentsCount::getCommentsCount));
+        for (Item item : items) {
+            List<Comment> itemComments = comments.get(item.getId());
+            item.setComments(itemComments);
+            item.setCommentsCount(counts.getOrDefault(item.getId(),
+                    itemComments == null ? 0L : (long) itemComments.size()));
+        }
+    }
+
+    /**
+     * Отзывы о вещи, новые первыми. С after страница начинается после отзыва с этим id.
+     * Размер страницы ограничен commentsMaxPageSize
+     */
+    @Override
+    public List<Comment> getComments(long itemId, Long after, Integer size) {
+        if (size != null && size <= 0) {
+            throw new ValidationException("Размер страницы должен быть положительным: size = " + size);
+        }
+        if (!itemRepository.existsById(itemId)) {
+            throw new EntityNotFoundException("Вещь с id = " + itemId + " не найдена");
+        }
+        Pageable page = PageRequest.of(0, size == null ? commentsLimit : Math.min(size, commentsMaxPageSize));
+        return after == null ? commentRepository.findByItemId(itemId, page) :
+                commentRepository.findByItemIdAfter(itemId, after, page);
+    }
+
+    /**
+     * Курсор по вещам владельца. Вызывающий должен открыть транзакцию и закрыть поток
+     */
+    @Override
+    public Stream<Item> streamAllByUser(long userId) {
+        return itemRepository.streamAllByOwnerId(userId);
+    }
+
     @Override
     public List<Item> searchByText(String text, Integer from, Integer size) {
         if (text.isBlank()) {
@@ -140,7 +261,7 @@ public class ItemServiceImpl implements ItemService {
         return bookingRepository.findByItem_Id(item.getId());
     }
 
-    private Booking getLastBookingByItem(List<Booking> bookings, LocalDateTime dateTime) {
+    static Booking getLastBookingByItem(List<Booking> bookings, LocalDateTime dateTime) {
         if (bookings == null) {
             return null;
         }
@@ -150,7 +271,7 @@ public class ItemServiceImpl implements ItemService {
                 .orElse(null);
     }
 
-    private Booking getNextBookingByItem(List<Booking> bookings, LocalDateTime dateTime) {
+    static Booking getNextBookingByItem(List<Booking> bookings, LocalDateTime dateTime) {
         if (bookings == null) {
             return null;
         }
@@ -160,19 +281,27 @@ public class ItemServiceImpl implements ItemService {
                 .orElse(null);
     }
 
+    /**
+     * Отзыв может оставить только пользователь, у которого было завершенное бронирование вещи.
+     * Проверка заодно загружает автора, а вещь подставляется ссылкой: запись отзыва - это проверка
+     * и вставка, без чтения вещи, ее отзывов и бронирований
+     */
+    @Transactional
     @Override
     public Comment createComment(Comment comment, long userId, long itemId) {
         final LocalDateTime now = LocalDateTime.now();
-        BooleanExpression eqUserId = QBooking.booking.booker.id.eq(userId);
-        BooleanExpression eqItemId = QBooking.booking.item.id.eq(itemId);
-        BooleanExpression endBeforeNow = QBooking.booking.end.before(now);
-        if (!bookingRepository.exists(eqUserId.and(eqItemId).and(endBeforeNow))) {
+        List<User> authors = bookingRepository.findBookerWithFinishedBooking(userId, itemId, now, PageRequest.of(0, 1));
+        if (authors.isEmpty()) {
             String error = String.format("Пользователь с id = %s не брал в аренду вещь с id = %s", userId, itemId);
             throw new ValidationException(error);
         }
-        comment.setAuthor(userRepository.getReferenceById(userId));
-        comment.setItem(get(itemId, userId));
+        comment.setAuthor(authors.get(0));
+        comment.setItem(itemRepository.getReferenceById(itemId));
         comment.setCreated(now);
-        return commentRepository.save(comment);
+        Comment savedComment = commentRepository.save(comment);
+        itemDetailCache.evictItem(itemId);
+        outboxService.record(AggregateType.ITEM, itemId, OutboxEventType.COMMENT_CREATED,
+                CommentMapper.toCommentDtoResponse(savedComment));
+        return savedComment;
     }
 }
@@ -10,7 +10,7 @@ import ru.practicum.shareit.user.dto.UserDtoResponse;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class ItemDtoWithBookingDateResponse {
     private long id;
     private String name;
@@ -21,4 +21,5 @@ public class ItemDtoWithBookingDateResponse {
     private BookingSimpleDto lastBooking;
     private BookingSimpleDto nextBooking;
     private List<CommentDtoResponse> comments;
+    private Long commentsCount;
 }
@@ -46,4 +46,7 @@ public class Item {
     @Transient
     private List<Comment> comments;
 
+    @Transient
+    private Long commentsCount;
+
 }
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.monitoring;
+
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Оборачивает источник данных в прокси datasource-proxy и подключает к нему все бины-слушатели
+ * выполнения SQL. Если слушателей нет, источник данных не оборачивается
+ */
+@Component
+public class DataSourceProxyPostProcessor implements BeanPostProcessor {
+    private final ObjectProvider<QueryExecutionListener> queryListeners;
+    private final ObjectProvider<MethodExecutionListener> methodListeners;
+
+    public DataSourceProxyPostProcessor(ObjectProvider<QueryExecutionListener> queryListeners,
+                                        ObjectProvider<MethodExecutionListener> methodListeners) {
+        this.queryListeners = queryListeners;
+        this.methodListeners = methodListeners;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof DataSource) || bean instanceof ProxyDataSource) {
+            return bean;
+        }
+        List<QueryExecutionListener> queries = queryListeners.orderedStream().collect(Collectors.toList());
+        List<MethodExecutionListener> methods = methodListeners.orderedStream().collect(Collectors.toList());
+        if (queries.isEmpty() && methods.isEmpty()) {
+            return bean;
+        }
+        ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create((DataSource) bean).name(beanName);
+        queries.forEach(builder::listener);
+        methods.forEach(builder::methodListener);
+        if (!methods.isEmpty()) {
+            builder.proxyResultSet();
+        }
+        return builder.build();
+    }
+}
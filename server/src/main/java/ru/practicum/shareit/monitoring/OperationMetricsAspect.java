@@ -0,0 +1,195 @@
+package ru.practicum.shareit.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import ru.practicum.shareit.booking.BookingFilterState;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Таймеры с гистограммами процентилей на методах *ServiceImpl и запросах репозиториев Spring Data.
+ * Метрика shareit.operation с тегами layer, class, method, state, paged, result и exception.
+ * Процентили считаются на стороне сервера метрик по корзинам гистограммы, таймеры создаются один раз
+ * на набор тегов. При shareit.metrics.enabled=false аспект не создается и прокси не оборачивают бины
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(value = "shareit.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class OperationMetricsAspect {
+    static final String METRIC_NAME = "shareit.operation";
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<List<Object>, Operation> operations = new ConcurrentHashMap<>();
+
+    public OperationMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * ru.practicum.shareit..*ServiceImpl.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "service");
+    }
+
+    @Around("execution(public * org.springframework.data.repository.Repository+.*(..))")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, "repository");
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String layer) throws Throwable {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        Object target = joinPoint.getTarget();
+        Operation operation = operations.computeIfAbsent(List.of(target.getClass(), method),
+                key -> Operation.of(layer, method, target));
+        Object[] args = joinPoint.getArgs();
+        long start = meterRegistry.config().clock().monotonicTime();
+        Object result = null;
+        String exception = NONE;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            operation.timer(meterRegistry, operation.state(args), operation.paged(args), resultSize(result), exception)
+                    .record(meterRegistry.config().clock().monotonicTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Размер результата группируется в интервалы, чтобы количество временных рядов оставалось ограниченным
+     */
+    static String resultSize(Object result) {
+        long size;
+        if (result instanceof Collection) {
+            size = ((Collection<?>) result).size();
+        } else if (result instanceof Slice) {
+            size = ((Slice<?>) result).getNumberOfElements();
+        } else if (result instanceof Optional) {
+            size = ((Optional<?>) result).isPresent() ? 1 : 0;
+        } else if (result instanceof Stream) {
+            return "stream";
+        } else {
+            return NONE;
+        }
+        if (size <= 1) {
+            return String.valueOf(size);
+        } else if (size <= 10) {
+            return "2-10";
+        } else if (size <= 100) {
+            return "11-100";
+        } else if (size <= 1000) {
+            return "101-1000";
+        }
+        return "1000+";
+    }
+
+    /**
+     * Постоянные теги метода, позиции аргументов, из которых берутся state и признак постраничного запроса,
+     * и уже зарегистрированные таймеры по значениям остальных тегов
+     */
+    private static final class Operation {
+        private final Tags tags;
+        private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+        private final int stateIndex;
+        private final int pageableIndex;
+        private final int fromIndex;
+        private final int sizeIndex;
+
+        private Operation(Tags tags, int stateIndex, int pageableIndex, int fromIndex, int sizeIndex) {
+            this.tags = tags;
+            this.stateIndex = stateIndex;
+            this.pageableIndex = pageableIndex;
+            this.fromIndex = fromIndex;
+            this.sizeIndex = sizeIndex;
+        }
+
+        static Operation of(String layer, Method method, Object target) {
+            int stateIndex = -1;
+            int pageableIndex = -1;
+            int fromIndex = -1;
+            int sizeIndex = -1;
+            Class<?>[] types = method.getParameterTypes();
+            Parameter[] parameters = method.getParameters();
+            for (int i = 0; i < types.length; i++) {
+                String name = parameters[i].isNamePresent() ? parameters[i].getName() : "";
+                if (BookingFilterState.class.equals(types[i]) || (String.class.equals(types[i]) && "state".equals(name))) {
+                    stateIndex = i;
+                } else if (Pageable.class.isAssignableFrom(types[i])) {
+                    pageableIndex = i;
+                } else if ("from".equals(name)) {
+                    fromIndex = i;
+                } else if ("size".equals(name)) {
+                    sizeIndex = i;
+                }
+            }
+            Tags tags = Tags.of("layer", layer, "class", className(target), "method", method.getName());
+            return new Operation(tags, stateIndex, pageableIndex, fromIndex, sizeIndex);
+        }
+
+        Timer timer(MeterRegistry meterRegistry, String state, String paged, String result, String exception) {
+            return timers.computeIfAbsent(Arrays.asList(state, paged, result, exception), key -> Timer.builder(METRIC_NAME)
+                    .tags(tags)
+                    .tag("state", state)
+                    .tag("paged", paged)
+                    .tag("result", result)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+
+        String state(Object[] args) {
+            if (stateIndex < 0) {
+                return NONE;
+            }
+            Object state = args[stateIndex];
+            if (state instanceof String) {
+                state = BookingFilterState.findByValue((String) state);
+            }
+            return state == null ? "UNKNOWN" : ((BookingFilterState) state).name();
+        }
+
+        String paged(Object[] args) {
+            if (pageableIndex >= 0) {
+                return String.valueOf(args[pageableIndex] != null && ((Pageable) args[pageableIndex]).isPaged());
+            }
+            if (fromIndex >= 0 && sizeIndex >= 0) {
+                return String.valueOf(args[fromIndex] != null && args[sizeIndex] != null);
+            }
+            return NONE;
+        }
+
+        /**
+         * Для репозиториев берется интерфейс приложения, а не класс прокси Spring Data
+         */
+        private static String className(Object target) {
+            for (Class<?> type : ClassUtils.getAllInterfacesForClass(target.getClass())) {
+                if (Repository.class.isAssignableFrom(type) && type.getName().startsWith("ru.practicum.shareit")) {
+                    return type.getSimpleName();
+                }
+            }
+            return ClassUtils.getUserClass(target).getSimpleName();
+        }
+    }
+}
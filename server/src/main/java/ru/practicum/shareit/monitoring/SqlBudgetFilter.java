@@ -0,0 +1,87 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Считает SQL-выражения каждого HTTP-запроса: запросы сверх бюджета выражений попадают в журнал,
+ * выражения, повторенные в одном запросе не меньше порога раз, отмечаются как вероятная проблема N+1.
+ * Для эндпоинтов с известным числом выражений задается собственный бюджет, и его превышение
+ * показывает регрессию, например вернувшуюся ленивую загрузку. Число выражений запроса сохраняется
+ * в атрибуте запроса STATEMENTS_ATTRIBUTE, по нему бюджеты проверяются в тестах
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "shareit.sql.monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_ATTRIBUTE = SqlBudgetFilter.class.getName() + ".statements";
+    private static final int REPORTED_STATEMENTS = 3;
+    private final SqlStatistics statistics;
+    private final SqlBudgetProperties properties;
+    private final int statementBudget;
+    private final int nPlusOneThreshold;
+
+    public SqlBudgetFilter(SqlStatistics statistics,
+                           SqlBudgetProperties properties,
+                           @Value("${shareit.sql.statement-budget:20}") int statementBudget,
+                           @Value("${shareit.sql.n-plus-one-threshold:5}") int nPlusOneThreshold) {
+        this.statistics = statistics;
+        this.properties = properties;
+        this.statementBudget = statementBudget;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        statistics.beginRequest();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatistics.RequestStatistics requestStatistics = statistics.endRequest();
+            if (requestStatistics != null) {
+                request.setAttribute(STATEMENTS_ATTRIBUTE, requestStatistics.getStatements());
+                check(request, requestStatistics);
+            }
+        }
+    }
+
+    private void check(HttpServletRequest request, SqlStatistics.RequestStatistics requestStatistics) {
+        for (Map.Entry<StatementStatistics, Integer> entry : requestStatistics.getExecutions().entrySet()) {
+            if (entry.getValue() >= nPlusOneThreshold) {
+                entry.getKey().markNPlusOne();
+                log.warn("Вероятная проблема N+1 в {} {}: выражение выполнено {} раз: {}", request.getMethod(),
+                        request.getRequestURI(), entry.getValue(), entry.getKey().getSql());
+            }
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Integer endpointBudget = pattern == null ? null :
+                properties.getEndpointBudgets().get(request.getMethod() + " " + pattern);
+        if (endpointBudget != null && requestStatistics.getStatements() > endpointBudget) {
+            log.warn("Запрос {} {} выполнил {} SQL-выражений при бюджете эндпоинта {} {}", request.getMethod(),
+                    request.getRequestURI(), requestStatistics.getStatements(), pattern, endpointBudget);
+        }
+        if (requestStatistics.getStatements() > statementBudget) {
+            String mostFrequent = requestStatistics.getExecutions().entrySet().stream()
+                    .sorted(Map.Entry.<StatementStatistics, Integer>comparingByValue().reversed())
+                    .limit(REPORTED_STATEMENTS)
+                    .map(entry -> entry.getValue() + " x " + entry.getKey().getSql())
+                    .collect(Collectors.joining("; "));
+            log.warn("Запрос {} {} выполнил {} SQL-выражений за {} мс при бюджете {}, чаще всего: {}",
+                    request.getMethod(), request.getRequestURI(), requestStatistics.getStatements(),
+                    requestStatistics.getTotalNanos() / 1_000_000, statementBudget, mostFrequent);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Бюджеты SQL-выражений отдельных эндпоинтов, более строгие, чем общий shareit.sql.statement-budget.
+ * Ключ эндпоинта - метод и шаблон пути, например shareit.sql.endpoint-budgets[GET /items/{itemId}]=4
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "shareit.sql")
+public class SqlBudgetProperties {
+    private Map<String, Integer> endpointBudgets = new HashMap<>();
+}
@@ -0,0 +1,119 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Статистика выполнения SQL-выражений, собираемая прокси источника данных:
+ * количество, время, прочитанные и измененные строки по каждому выражению,
+ * а также счетчики выражений текущего HTTP-запроса для поиска N+1
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "shareit.sql.monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatistics {
+    static final String OTHER_STATEMENTS = "<other>";
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, StatementStatistics> statements = new ConcurrentHashMap<>();
+    private final ThreadLocal<StatementStatistics> lastQuery = new ThreadLocal<>();
+    private final ThreadLocal<RequestStatistics> currentRequest = new ThreadLocal<>();
+    private final int maxStatements;
+    private final long slowQueryThresholdNanos;
+
+    public SqlStatistics(@Value("${shareit.sql.max-statements:500}") int maxStatements,
+                         @Value("${shareit.sql.slow-query-threshold:PT0.2S}") Duration slowQueryThreshold) {
+        this.maxStatements = maxStatements;
+        this.slowQueryThresholdNanos = slowQueryThreshold.toNanos();
+    }
+
+    void onStatement(String sql, long elapsedNanos, boolean success, long updatedRows) {
+        String key = normalize(sql);
+        StatementStatistics statistics = statements.get(key);
+        if (statistics == null) {
+            if (statements.size() >= maxStatements) {
+                key = OTHER_STATEMENTS;
+            }
+            statistics = statements.computeIfAbsent(key, StatementStatistics::new);
+        }
+        statistics.record(elapsedNanos, success);
+        statistics.addRows(updatedRows);
+        lastQuery.set(statistics);
+        RequestStatistics request = currentRequest.get();
+        if (request != null) {
+            request.add(statistics, elapsedNanos);
+        }
+        if (elapsedNanos > slowQueryThresholdNanos) {
+            log.warn("Медленный SQL-запрос ({} мс): {}", elapsedNanos / 1_000_000, key);
+        }
+    }
+
+    /**
+     * Строка результата относится к последнему выражению, выполненному в этом потоке
+     */
+    void onRowRead() {
+        StatementStatistics statistics = lastQuery.get();
+        if (statistics != null) {
+            statistics.addRows(1);
+        }
+    }
+
+    void beginRequest() {
+        currentRequest.set(new RequestStatistics());
+    }
+
+    RequestStatistics endRequest() {
+        RequestStatistics request = currentRequest.get();
+        currentRequest.remove();
+        lastQuery.remove();
+        return request;
+    }
+
+    public List<StatementStatistics> top(int limit, Comparator<StatementStatistics> order) {
+        return statements.values().stream()
+                .sorted(order.reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    /**
+     * Списки параметров IN разной длины сводятся к одному выражению, пробелы схлопываются
+     */
+    static String normalize(String sql) {
+        String normalized = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(normalized).replaceAll("(?...)");
+    }
+
+    /**
+     * SQL-выражения одного HTTP-запроса, используется только в потоке запроса
+     */
+    @Getter
+    static class RequestStatistics {
+        private int statements;
+        private long totalNanos;
+        private final Map<StatementStatistics, Integer> executions = new HashMap<>();
+
+        void add(StatementStatistics statement, long elapsedNanos) {
+            statements++;
+            totalNanos += elapsedNanos;
+            executions.merge(statement, 1, Integer::sum);
+        }
+    }
+}
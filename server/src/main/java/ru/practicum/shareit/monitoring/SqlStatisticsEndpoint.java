@@ -0,0 +1,148 @@
+package ru.practicum.shareit.monitoring;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Эндпоинт /actuator/sqlstats: самые затратные SQL-выражения по данным прокси источника данных
+ * и самые затратные запросы JPQL по статистике Hibernate
+ */
+@Component
+@Endpoint(id = "sqlstats")
+@ConditionalOnProperty(value = "shareit.sql.monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatisticsEndpoint {
+    private static final int DEFAULT_LIMIT = 20;
+    private final SqlStatistics sqlStatistics;
+    private final Statistics hibernateStatistics;
+
+    public SqlStatisticsEndpoint(SqlStatistics sqlStatistics, EntityManagerFactory entityManagerFactory) {
+        this.sqlStatistics = sqlStatistics;
+        this.hibernateStatistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @param limit количество выражений, по умолчанию 20
+     * @param orderBy totalTime, maxTime, count, rows или nPlusOne, по умолчанию totalTime
+     */
+    @ReadOperation
+    public SqlStatisticsReport report(@Nullable Integer limit, @Nullable String orderBy) {
+        int top = limit == null ? DEFAULT_LIMIT : limit;
+        return SqlStatisticsReport.builder()
+                .statements(sqlStatistics.top(top, statementOrder(orderBy)).stream()
+                        .map(SqlStatisticsEndpoint::toStatementReport)
+                        .collect(Collectors.toList()))
+                .queries(topQueries(top))
+                .hibernateStatisticsEnabled(hibernateStatistics.isStatisticsEnabled())
+                .queryExecutionCount(hibernateStatistics.getQueryExecutionCount())
+                .prepareStatementCount(hibernateStatistics.getPrepareStatementCount())
+                .entityLoadCount(hibernateStatistics.getEntityLoadCount())
+                .entityFetchCount(hibernateStatistics.getEntityFetchCount())
+                .collectionFetchCount(hibernateStatistics.getCollectionFetchCount())
+                .build();
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlStatistics.reset();
+        hibernateStatistics.clear();
+    }
+
+    private List<QueryReport> topQueries(int limit) {
+        return Arrays.stream(hibernateStatistics.getQueries())
+                .map(query -> {
+                    QueryStatistics statistics = hibernateStatistics.getQueryStatistics(query);
+                    return QueryReport.builder()
+                            .query(query)
+                            .count(statistics.getExecutionCount())
+                            .rows(statistics.getExecutionRowCount())
+                            .totalMillis(statistics.getExecutionTotalTime())
+                            .maxMillis(statistics.getExecutionMaxTime())
+                            .build();
+                })
+                .sorted(Comparator.comparingLong(QueryReport::getTotalMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static Comparator<StatementStatistics> statementOrder(String orderBy) {
+        if (orderBy == null) {
+            return Comparator.comparingLong(StatementStatistics::getTotalNanos);
+        }
+        switch (orderBy) {
+            case "maxTime":
+                return Comparator.comparingLong(StatementStatistics::getMaxNanos);
+            case "count":
+                return Comparator.comparingLong(StatementStatistics::getCount);
+            case "rows":
+                return Comparator.comparingLong(StatementStatistics::getRows);
+            case "nPlusOne":
+                return Comparator.comparingLong(StatementStatistics::getNPlusOneRequests);
+            default:
+                return Comparator.comparingLong(StatementStatistics::getTotalNanos);
+        }
+    }
+
+    private static StatementReport toStatementReport(StatementStatistics statistics) {
+        return StatementReport.builder()
+                .sql(statistics.getSql())
+                .count(statistics.getCount())
+                .errors(statistics.getErrors())
+                .rows(statistics.getRows())
+                .totalMillis(statistics.getTotalNanos() / 1_000_000.0)
+                .meanMillis(statistics.getCount() == 0 ? 0 : statistics.getTotalNanos() / 1_000_000.0 / statistics.getCount())
+                .maxMillis(statistics.getMaxNanos() / 1_000_000.0)
+                .suspectedNPlusOne(statistics.getNPlusOneRequests())
+                .build();
+    }
+
+    @Getter
+    @Builder
+    public static class SqlStatisticsReport {
+        private final List<StatementReport> statements;
+        private final List<QueryReport> queries;
+        private final boolean hibernateStatisticsEnabled;
+        private final long queryExecutionCount;
+        private final long prepareStatementCount;
+        private final long entityLoadCount;
+        private final long entityFetchCount;
+        private final long collectionFetchCount;
+    }
+
+    @Getter
+    @Builder
+    public static class StatementReport {
+        private final String sql;
+        private final long count;
+        private final long errors;
+        private final long rows;
+        private final double totalMillis;
+        private final double meanMillis;
+        private final double maxMillis;
+        private final long suspectedNPlusOne;
+    }
+
+    @Getter
+    @Builder
+    public static class QueryReport {
+        private final String query;
+        private final long count;
+        private final long rows;
+        private final long totalMillis;
+        private final long maxMillis;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.shareit.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Передает в SqlStatistics время выполнения выражений и количество прочитанных и измененных строк
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.sql.monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlStatisticsListener implements QueryExecutionListener, MethodExecutionListener {
+    private final SqlStatistics statistics;
+    private final ThreadLocal<Long> startedAt = new ThreadLocal<>();
+
+    public SqlStatisticsListener(SqlStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        startedAt.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long start = startedAt.get();
+        long elapsedNanos = start == null ? 0 : System.nanoTime() - start;
+        startedAt.remove();
+        long updatedRows = updatedRows(execInfo.getResult());
+        for (QueryInfo queryInfo : queryInfoList) {
+            statistics.onStatement(queryInfo.getQuery(), elapsedNanos / queryInfoList.size(), execInfo.isSuccess(),
+                    updatedRows);
+        }
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        if (executionContext.getTarget() instanceof ResultSet
+                && "next".equals(executionContext.getMethod().getName())
+                && Boolean.TRUE.equals(executionContext.getResult())) {
+            statistics.onRowRead();
+        }
+    }
+
+    private static long updatedRows(Object result) {
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        if (result instanceof int[]) {
+            long sum = 0;
+            for (int count : (int[]) result) {
+                sum += Math.max(count, 0);
+            }
+            return sum;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.shareit.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Накопленная статистика одного SQL-выражения
+ */
+public class StatementStatistics {
+    private final String sql;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final LongAdder nPlusOneRequests = new LongAdder();
+
+    public StatementStatistics(String sql) {
+        this.sql = sql;
+    }
+
+    void record(long elapsedNanos, boolean success) {
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    void addRows(long value) {
+        rows.add(value);
+    }
+
+    void markNPlusOne() {
+        nPlusOneRequests.increment();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getNPlusOneRequests() {
+        return nPlusOneRequests.sum();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Получатель для локальной отладки: дописывает события в файл, по одному JSON-объекту на строку
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public FileOutboxSink(ObjectMapper objectMapper,
+                          @Value("${shareit.outbox.file:outbox-events.ndjson}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (OutboxEvent event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать события outbox в файл " + file, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.shareit.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Получатель для локального запуска: хранит последние события и раздает их подписчикам внутри процесса
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.outbox.sink", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOutboxSink implements OutboxSink {
+    private final List<Consumer<OutboxEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Deque<OutboxEvent> recent = new ArrayDeque<>();
+    private final int capacity;
+
+    public InMemoryOutboxSink(@Value("${shareit.outbox.memory.capacity:1000}") int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        synchronized (recent) {
+            for (OutboxEvent event : events) {
+                if (recent.size() == capacity) {
+                    recent.removeFirst();
+                }
+                recent.addLast(event);
+            }
+        }
+        for (OutboxEvent event : events) {
+            listeners.forEach(listener -> listener.accept(event));
+        }
+    }
+
+    public void subscribe(Consumer<OutboxEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public List<OutboxEvent> getRecent() {
+        synchronized (recent) {
+            return new ArrayList<>(recent);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package ru.practicum.shareit.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.*;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_events")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@ToString
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "aggregate_type")
+    private AggregateType aggregateType;
+
+    @Column(name = "aggregate_id")
+    private long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type")
+    private OutboxEventType eventType;
+
+    @JsonRawValue
+    private String payload;
+
+    private LocalDateTime created;
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+    List<OutboxEvent> findAllByOrderByIdAsc(Pageable page);
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.outbox;
+
+public enum OutboxEventType {
+    BOOKING_CREATED,
+    BOOKING_STATUS_CHANGED,
+    BOOKING_EXPIRED,
+    ITEM_CREATED,
+    ITEM_UPDATED,
+    COMMENT_CREATED
+}
@@ -0,0 +1,53 @@
+package ru.practicum.shareit.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.common.JobLockService;
+
+import java.time.Duration;
+
+/**
+ * Ретранслятор outbox: пачками передает накопленные события получателю.
+ * Блокировка гарантирует одного ретранслятора на кластер и, как следствие, порядок событий
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(value = "shareit.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    private static final String JOB_NAME = "outbox-relay";
+    private final OutboxService outboxService;
+    private final JobLockService jobLockService;
+    private final int batchSize;
+    private final Duration lockAtMostFor;
+
+    public OutboxRelay(OutboxService outboxService,
+                       JobLockService jobLockService,
+                       @Value("${shareit.outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${shareit.outbox.relay.lock-at-most-for:PT1M}") Duration lockAtMostFor) {
+        this.outboxService = outboxService;
+        this.jobLockService = jobLockService;
+        this.batchSize = batchSize;
+        this.lockAtMostFor = lockAtMostFor;
+    }
+
+    @Scheduled(fixedDelayString = "${shareit.outbox.relay.fixed-delay:1000}")
+    public void relay() {
+        if (!jobLockService.tryLock(JOB_NAME, lockAtMostFor)) {
+            return;
+        }
+        try {
+            int published;
+            do {
+                published = outboxService.relay(batchSize);
+                if (published > 0) {
+                    log.debug("Отправлено событий outbox: {}", published);
+                }
+            } while (published == batchSize);
+        } finally {
+            jobLockService.unlock(JOB_NAME);
+        }
+    }
+}
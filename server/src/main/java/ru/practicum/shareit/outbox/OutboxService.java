@@ -0,0 +1,56 @@
+package ru.practicum.shareit.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink outboxSink;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Запись события в outbox. Должна выполняться в той же транзакции, что и само изменение
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(AggregateType aggregateType, long aggregateId, OutboxEventType eventType, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие " + eventType, e);
+        }
+        outboxEventRepository.save(OutboxEvent.builder()
+                .aggregateType(aggregateType)
+                .aggregateId(aggregateId)
+                .eventType(eventType)
+                .payload(json)
+                .created(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Отправка очередной пачки событий в порядке id и удаление отправленных
+     *
+     * @return количество отправленных событий
+     */
+    @Transactional
+    public int relay(int batchSize) {
+        List<OutboxEvent> events = outboxEventRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        outboxSink.publish(events);
+        outboxEventRepository.deleteAllInBatch(events);
+        return events.size();
+    }
+}
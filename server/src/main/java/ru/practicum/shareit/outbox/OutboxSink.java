@@ -0,0 +1,11 @@
+package ru.practicum.shareit.outbox;
+
+import java.util.List;
+
+/**
+ * Получатель событий из outbox. Вызывается в транзакции ретранслятора: если публикация падает,
+ * пачка остается в таблице и будет отправлена повторно, поэтому получатель должен быть идемпотентным по id события
+ */
+public interface OutboxSink {
+    void publish(List<OutboxEvent> events);
+}
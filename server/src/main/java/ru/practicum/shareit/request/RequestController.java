@@ -22,7 +22,7 @@ public class RequestController {
     @PostMapping
     public RequestDtoResponse add(@RequestHeader(X_SHARER_USER_ID) long requesterId,
                                   @RequestBody RequestDtoRequest requestDtoRequest) {
-        log.info("Получен запрос POST /requests с параметрами userId = {}, dto = {}", requesterId, requestDtoRequest);
+        log.debug("Получен запрос POST /requests с параметрами userId = {}, dto = {}", requesterId, requestDtoRequest);
         Request request = requestService.add(RequestMapper.toRequest(requestDtoRequest), requesterId);
         return RequestMapper.toRequestDtoResponse(request);
     }
@@ -32,27 +32,30 @@ public class RequestController {
      */
     @GetMapping
     public List<RequestDtoResponse> getRequestsByUser(@RequestHeader(X_SHARER_USER_ID) long userId) {
-        log.info("Получен запрос GET /requests с параметрами userId = {}", userId);
+        log.debug("Получен запрос GET /requests с параметрами userId = {}", userId);
         List<Request> requests = requestService.getAllByUser(userId);
         return RequestMapper.toRequestDtoResponseList(requests);
     }
 
     /**
-     * GET /requests/all?from={from}&size={size} — получить список запросов, созданных другими пользователями
+     * GET /requests/all?from={from}&size={size} — получить список запросов, созданных другими пользователями.
+     * GET /requests/all?after={requestId}&size={size} — следующая страница после запроса с id = after
      */
     @GetMapping("/all")
     public List<RequestDtoResponse> getRequests(@RequestHeader(X_SHARER_USER_ID) long userId,
                                                 @RequestParam(required = false) Integer from,
-                                                @RequestParam(required = false) Integer size) {
-        log.info("Получен запрос GET /requests/all?from={from}&size={size} с параметрами userId = {}, from = {}, size = {}", userId, from, size);
-        List<Request> requests = requestService.getAll(userId, from, size);
+                                                @RequestParam(required = false) Integer size,
+                                                @RequestParam(required = false) Long after) {
+        log.debug("Получен запрос GET /requests/all?from={from}&size={size}&after={after} с параметрами userId = {}, " +
+                "from = {}, size = {}, after = {}", userId, from, size, after);
+        List<Request> requests = requestService.getAll(userId, from, size, after);
         return RequestMapper.toRequestDtoResponseList(requests);
     }
 
     @GetMapping("/{requestId}")
     public RequestDtoResponse getRequestsById(@RequestHeader(X_SHARER_USER_ID) long userId,
                                               @PathVariable("requestId") long id) {
-        log.info("Получен запрос GET /requests/{requestId} с параметрами userId = {}, requestId = {}", userId, id);
+        log.debug("Получен запрос GET /requests/{requestId} с параметрами userId = {}, requestId = {}", userId, id);
         return RequestMapper.toRequestDtoResponse(requestService.getById(id, userId));
     }
 }
@@ -1,20 +1,35 @@
 package ru.practicum.shareit.request;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
     @Query(" select r from Request r join r.requester as u " +
             "where u.id = ?1")
     List<Request> findAllByRequesterId(long requesterId);
 
-    @Query(value = " select r.* from requests as r " +
-            "join items as i on r.id = i.request_id  " +
-            "join users as u on i.owner_id = u.id " +
-            "where u.id = ?1", nativeQuery = true)
-    Page<Request> findAll(long requesterId, Pageable page);
+    @Query("select r.requester.id from Request r where r.id = ?1")
+    Optional<Long> findRequesterId(long requestId);
+
+    /**
+     * Запросы других пользователей, новые первыми. Порядок совпадает с индексом idx_requests_created_id
+     */
+    @Query(" select r from Request r join fetch r.requester " +
+            "where r.requester.id <> ?1 " +
+            "order by r.created desc, r.id desc")
+    List<Request> findOthers(long userId, Pageable page);
+
+    /**
+     * Следующая страница ленты после запроса afterId: поиск по ключу (created, id) вместо пропуска строк
+     */
+    @Query(" select r from Request r join fetch r.requester " +
+            "where r.requester.id <> ?1 " +
+            "and (r.created < (select a.created from Request a where a.id = ?2) " +
+            "or r.created = (select a.created from Request a where a.id = ?2) and r.id < ?2) " +
+            "order by r.created desc, r.id desc")
+    List<Request> findOthersAfter(long userId, long afterId, Pageable page);
 }
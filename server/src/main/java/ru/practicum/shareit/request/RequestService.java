@@ -7,7 +7,7 @@ public interface RequestService {
 
     List<Request>  getAllByUser(long userId);
 
-    List<Request> getAll(long userId, Integer from, Integer size);
+    List<Request> getAll(long userId, Integer from, Integer size, Long after);
 
     Request getById(long id, long userId);
 }
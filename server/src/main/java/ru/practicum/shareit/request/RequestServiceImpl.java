@@ -2,15 +2,13 @@ package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.common.EntityNotFoundException;
 import ru.practicum.shareit.item.ItemRepository;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.UserExistenceGuard;
 import ru.practicum.shareit.user.UserRepository;
 import ru.practicum.shareit.user.model.User;
 
@@ -34,6 +32,8 @@ public class RequestServiceImpl implements RequestService {
 
     private final RequestRepository requestRepository;
 
+    private final UserExistenceGuard userExistenceGuard;
+
     @Transactional
     @Override
     public Request add(Request request, long requesterId) {
@@ -48,9 +48,7 @@ public class RequestServiceImpl implements RequestService {
 
     @Override
     public List<Request> getAllByUser(long userId) {
-        userRepository.findById(userId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Пользователь с id = " + userId + " не существует");
-        });
+        userExistenceGuard.requireExists(userId);
         List<Request> allByRequesterId = requestRepository.findAllByRequesterId(userId);
         if (allByRequesterId.isEmpty()) {
             return allByRequesterId;
@@ -62,20 +60,25 @@ public class RequestServiceImpl implements RequestService {
         return allByRequesterId;
     }
 
+    /**
+     * Лента запросов других пользователей, новые первыми. С after страница начинается после запроса с этим id
+     * и строится по индексу без пропуска строк, поэтому время ответа не зависит от номера страницы.
+     * Вещи всех запросов страницы подгружаются одним запросом вместе с владельцами
+     */
     @Override
-    public List<Request> getAll(long userId, Integer from, Integer size) {
-        if (from == null && size == null) {
+    public List<Request> getAll(long userId, Integer from, Integer size, Long after) {
+        if (size == null) {
             return Collections.emptyList();
         }
-        userRepository.findById(userId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Пользователь с id = " + userId + " не существует");
-        });
+        userExistenceGuard.requireExists(userId);
 
-        Sort sortById = Sort.by(Sort.Direction.ASC, "id");
-        Pageable page = PageRequest.of(from / size, size, sortById);
-
-        Page<Request> requestsPage = requestRepository.findAll(userId, page);
-        List<Request> requests = requestsPage.getContent();
+        List<Request> requests;
+        if (after != null) {
+            requests = requestRepository.findOthersAfter(userId, after, PageRequest.of(0, size));
+        } else {
+            int offset = from == null ? 0 : from;
+            requests = requestRepository.findOthers(userId, PageRequest.of(offset / size, size));
+        }
         if (requests.isEmpty()) {
             return new ArrayList<>();
         }
@@ -89,9 +92,7 @@ public class RequestServiceImpl implements RequestService {
 
     @Override
     public Request getById(long id, long userId) {
-        userRepository.findById(userId).orElseThrow(() -> {
-            throw new EntityNotFoundException("Пользователь с id = " + userId + " не существует");
-        });
+        userExistenceGuard.requireExists(userId);
         Request request = requestRepository.findById(id).orElseThrow(() -> {
             throw new EntityNotFoundException("Запрос с id = " + id + " не найден");
         });
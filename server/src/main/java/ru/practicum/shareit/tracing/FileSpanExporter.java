@@ -0,0 +1,50 @@
+package ru.practicum.shareit.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Получатель для локальной отладки: дописывает участки в файл, по одному JSON-объекту на строку
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.tracing.exporter", havingValue = "file")
+public class FileSpanExporter implements SpanExporter {
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    private final BufferedWriter writer;
+
+    public FileSpanExporter(ObjectMapper objectMapper,
+                            @Value("${shareit.tracing.file:spans.ndjson}") String file) throws IOException {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file);
+        this.writer = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized void export(Span span) {
+        try {
+            writer.write(objectMapper.writeValueAsString(span));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать участок трассы в файл " + file, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.tracing;
+
+/**
+ * Получатель завершенных участков трассы. Вызывается в потоке запроса, поэтому должен работать быстро
+ */
+public interface SpanExporter {
+    void export(Span span);
+}
@@ -0,0 +1,67 @@
+package ru.practicum.shareit.tracing;
+
+import lombok.Getter;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Контекст трассировки в формате заголовка W3C traceparent: 00-{trace-id}-{parent-id}-{flags}
+ */
+@Getter
+public class TraceContext {
+    public static final String TRACEPARENT_HEADER = "traceparent";
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    private final String traceId;
+    private final String spanId;
+    private final boolean sampled;
+
+    public TraceContext(String traceId, String spanId, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.sampled = sampled;
+    }
+
+    @Nullable
+    public static TraceContext parse(@Nullable String traceparent) {
+        if (traceparent == null || traceparent.length() != TRACEPARENT_LENGTH
+                || traceparent.charAt(2) != '-' || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return null;
+        }
+        String traceId = traceparent.substring(3, 35);
+        String spanId = traceparent.substring(36, 52);
+        if (!isHex(traceId) || !isHex(spanId)) {
+            return null;
+        }
+        boolean sampled = (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+        return new TraceContext(traceId, spanId, sampled);
+    }
+
+    public String toTraceparent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    static String randomTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return toHex(random.nextLong()) + toHex(random.nextLong());
+    }
+
+    static String randomSpanId() {
+        return toHex(ThreadLocalRandom.current().nextLong());
+    }
+
+    private static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() == 16 ? hex : "0".repeat(16 - hex.length()) + hex;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.digit(value.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Эндпоинт /actuator/traces: последние участки из InMemorySpanExporter, целиком или по id трассы
+ */
+@Component
+@Endpoint(id = "traces")
+@ConditionalOnProperty(value = "shareit.tracing.exporter", havingValue = "memory", matchIfMissing = true)
+public class TracesEndpoint {
+    private final InMemorySpanExporter exporter;
+
+    public TracesEndpoint(InMemorySpanExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @ReadOperation
+    public List<Span> spans() {
+        return exporter.getSpans();
+    }
+
+    @ReadOperation
+    public List<Span> trace(@Selector String traceId) {
+        return exporter.getSpans().stream()
+                .filter(span -> span.getTraceId().equals(traceId))
+                .collect(Collectors.toList());
+    }
+
+    @DeleteOperation
+    public void clear() {
+        exporter.clear();
+    }
+}
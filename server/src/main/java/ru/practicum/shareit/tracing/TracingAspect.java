@@ -0,0 +1,40 @@
+package ru.practicum.shareit.tracing;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Участок трассы на каждый вызов публичного метода *ServiceImpl
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(value = "shareit.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingAspect {
+    private final Tracer tracer;
+
+    public TracingAspect(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("execution(public * ru.practicum.shareit..*ServiceImpl.*(..))")
+    public Object traceService(ProceedingJoinPoint joinPoint) throws Throwable {
+        Span current = tracer.current();
+        if (current == null || !current.isSampled()) {
+            return joinPoint.proceed();
+        }
+        Span span = tracer.startSpan(ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName() + "."
+                + joinPoint.getSignature().getName(), SpanKind.INTERNAL);
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+}
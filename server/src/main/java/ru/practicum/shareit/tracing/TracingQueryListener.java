@@ -0,0 +1,47 @@
+package ru.practicum.shareit.tracing;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Участок трассы на каждое SQL-выражение, выполненное через прокси источника данных
+ */
+@Component
+@ConditionalOnProperty(value = "shareit.tracing.enabled", havingValue = "true", matchIfMissing = true)
+public class TracingQueryListener implements QueryExecutionListener {
+    private static final int MAX_STATEMENT_LENGTH = 1000;
+    private final Tracer tracer;
+
+    public TracingQueryListener(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Span current = tracer.current();
+        if (current == null || !current.isSampled()) {
+            return;
+        }
+        String sql = queryInfoList.isEmpty() ? "" : queryInfoList.get(0).getQuery();
+        tracer.startSpan("SQL", SpanKind.CLIENT)
+                .attribute("db.statement", sql.length() > MAX_STATEMENT_LENGTH ? sql.substring(0, MAX_STATEMENT_LENGTH) : sql)
+                .attribute("db.batch_size", queryInfoList.size());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Span span = tracer.current();
+        if (span == null || !span.isSampled() || !"SQL".equals(span.getName())) {
+            return;
+        }
+        if (!execInfo.isSuccess() && execInfo.getThrowable() != null) {
+            span.error(execInfo.getThrowable());
+        }
+        span.end();
+    }
+}
@@ -2,7 +2,10 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.common.NdjsonExporter;
 import ru.practicum.shareit.user.dto.UserDtoRequest;
 import ru.practicum.shareit.user.dto.UserDtoResponse;
 import ru.practicum.shareit.user.model.User;
@@ -16,10 +19,11 @@ import java.util.List;
 public class UserController {
     private static final String USER_ID = "userId";
     private final UserService userService;
+    private final NdjsonExporter ndjsonExporter;
 
     @PostMapping
     public UserDtoResponse create(@RequestBody UserDtoRequest userDtoRequest) {
-        log.info("Получен запрос POST /users с параметрами {}", userDtoRequest);
+        log.debug("Получен запрос POST /users с параметрами {}", userDtoRequest);
         User user = userService.create(UserMapper.toUser(userDtoRequest));
         return UserMapper.toUserDtoResponse(user);
     }
@@ -27,26 +31,40 @@ public class UserController {
     @PatchMapping("/{userId}")
     public UserDtoResponse update(@RequestBody UserDtoRequest userDtoRequest,
                                   @PathVariable(USER_ID) long userId) {
-        log.info("Получен запрос PATCH /users/{userId} с параметрами dto = {} и userId = {}", userDtoRequest, userId);
+        log.debug("Получен запрос PATCH /users/{userId} с параметрами dto = {} и userId = {}", userDtoRequest, userId);
         User user = userService.update(UserMapper.toUser(userDtoRequest, userId));
         return UserMapper.toUserDtoResponse(user);
     }
 
     @DeleteMapping("/{userId}")
     public void delete(@PathVariable(USER_ID) long userId) {
-        log.info("Получен запрос DELETE /users/{userId} с userId = {}", userId);
+        log.debug("Получен запрос DELETE /users/{userId} с userId = {}", userId);
         userService.deleteById(userId);
     }
 
     @GetMapping("/{id}")
     public UserDtoResponse get(@PathVariable long id) {
-        log.info("Получен запрос GET /users/{id} с параметрами id = {}", id);
+        log.debug("Получен запрос GET /users/{id} с параметрами id = {}", id);
         return UserMapper.toUserDtoResponse(userService.getById(id));
     }
 
+    /**
+     * GET /users?after={after}&size={size} — постраничный список по ключу. Без size возвращается страница
+     * размера по умолчанию, полный список доступен только через /users/export
+     */
     @GetMapping
-    public List<UserDtoResponse> getAll() {
-        log.info("Получен запрос GET /users");
-        return UserMapper.toUserDtoResponseList(userService.getAll());
+    public List<UserDtoResponse> getAll(@RequestParam(required = false) Long after,
+                                        @RequestParam(required = false) Integer size) {
+        log.debug("Получен запрос GET /users?after={after}&size={size} с параметрами after = {}, size = {}", after, size);
+        return UserMapper.toUserDtoResponseList(userService.getAll(after, size));
+    }
+
+    /**
+     * GET /users/export — потоковая выгрузка всех пользователей в формате NDJSON
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export() {
+        log.debug("Получен запрос GET /users/export");
+        return ndjsonExporter.export(userService::streamAll, UserMapper::toUserDtoResponse);
     }
 }
@@ -0,0 +1,84 @@
+package ru.practicum.shareit.user;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.common.EntityNotFoundException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Проверка существования пользователя без загрузки строки целиком.
+ * Подтвержденные id хранятся в ограниченном LRU-отображении, промах проверяется через existsById.
+ * Удаление пользователя через UserService сбрасывает его id сразу и еще раз после завершения транзакции.
+ * Результат existsById, полученный до сброса, не запоминается. Сброс действует только на этом узле,
+ * поэтому id живут не дольше ttl: пользователь, удаленный на другом узле server, перестает проходить
+ * проверку не позже чем через ttl
+ */
+@Component
+public class UserExistenceGuard {
+    private final UserRepository userRepository;
+    private final Map<Long, Long> knownUserIds;
+    private final long ttlNanos;
+    private long evictions;
+
+    public UserExistenceGuard(UserRepository userRepository,
+                              @Value("${shareit.user.existence-cache.max-size:100000}") int maxSize,
+                              @Value("${shareit.user.existence-cache.ttl:PT30S}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.ttlNanos = ttl.toNanos();
+        this.knownUserIds = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    public void requireExists(long userId) {
+        Long expiresAtNanos = knownUserIds.get(userId);
+        if (expiresAtNanos != null && System.nanoTime() - expiresAtNanos < 0) {
+            return;
+        }
+        long stamp = stamp();
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("Пользователь с id = " + userId + " не существует");
+        }
+        remember(userId, stamp);
+    }
+
+    public void remember(long userId) {
+        knownUserIds.put(userId, System.nanoTime() + ttlNanos);
+    }
+
+    public void evict(long userId) {
+        evictNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evictNow(userId);
+                }
+            });
+        }
+    }
+
+    private synchronized long stamp() {
+        return evictions;
+    }
+
+    private synchronized void remember(long userId, long stamp) {
+        if (stamp == evictions) {
+            knownUserIds.put(userId, System.nanoTime() + ttlNanos);
+        }
+    }
+
+    private synchronized void evictNow(long userId) {
+        evictions++;
+        knownUserIds.remove(userId);
+    }
+}
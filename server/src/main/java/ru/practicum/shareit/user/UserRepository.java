@@ -1,7 +1,21 @@
 package ru.practicum.shareit.user;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface UserRepository extends JpaRepository<User, Long> {
+    List<User> findByIdGreaterThanOrderByIdAsc(long id, Pageable page);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(" select u from User u order by u.id asc")
+    Stream<User> streamAll();
 }
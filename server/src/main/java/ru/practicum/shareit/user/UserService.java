@@ -3,6 +3,7 @@ package ru.practicum.shareit.user;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserService {
     User create(User user);
@@ -13,5 +14,7 @@ public interface UserService {
 
     User getById(Long id);
 
-    List<User> getAll();
+    List<User> getAll(Long after, Integer size);
+
+    Stream<User> streamAll();
 }
@@ -2,23 +2,38 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.counter.BookingCounterService;
 import ru.practicum.shareit.common.EntityNotFoundException;
+import ru.practicum.shareit.item.ItemDetailCache;
 import ru.practicum.shareit.user.model.User;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
+    private final UserExistenceGuard userExistenceGuard;
+    private final BookingCounterService bookingCounterService;
+    private final ItemDetailCache itemDetailCache;
+    @Value("${shareit.users.page-size:100}")
+    private int pageSize;
+    @Value("${shareit.users.max-page-size:1000}")
+    private int maxPageSize;
 
     @Transactional
     @Override
     public User create(User user) {
-        return userRepository.save(user);
+        User createdUser = userRepository.save(user);
+        bookingCounterService.register(createdUser.getId());
+        userExistenceGuard.remember(createdUser.getId());
+        return createdUser;
     }
 
     @Transactional
@@ -31,12 +46,16 @@ public class UserServiceImpl implements UserService {
         if (user.getEmail() != null && !user.getEmail().isBlank()) {
             oldUser.setEmail(user.getEmail());
         }
+        itemDetailCache.clear();
         return oldUser;
     }
 
+    @Transactional
     @Override
     public void deleteById(Long id) {
         userRepository.deleteById(id);
+        userExistenceGuard.evict(id);
+        itemDetailCache.clear();
     }
 
     @Override
@@ -47,8 +66,21 @@ public class UserServiceImpl implements UserService {
                 });
     }
 
+    /**
+     * Постраничное получение пользователей по ключу: страница начинается после пользователя с id = after.
+     * Без size страница размера pageSize, размер ограничен maxPageSize
+     */
+    @Override
+    public List<User> getAll(Long after, Integer size) {
+        int pageSize = size == null ? this.pageSize : Math.min(size, maxPageSize);
+        return userRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0 : after, PageRequest.of(0, pageSize));
+    }
+
+    /**
+     * Курсор по всем пользователям. Вызывающий должен открыть транзакцию и закрыть поток
+     */
     @Override
-    public List<User> getAll() {
-        return userRepository.findAll();
+    public Stream<User> streamAll() {
+        return userRepository.streamAll();
     }
 }
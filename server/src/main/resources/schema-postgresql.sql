@@ -0,0 +1,15 @@
+-- Выполняется до schema.sql. Колонка time_state в таблице bookings, созданной до ее появления, добавляется,
+-- заполняется и объявляется NOT NULL одним шагом, до того как узел начнет обслуживать запросы
+DO '
+BEGIN
+    IF to_regclass(''bookings'') IS NOT NULL AND NOT EXISTS (SELECT 1 FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = ''bookings''
+            AND column_name = ''time_state'' AND is_nullable = ''NO'') THEN
+        LOCK TABLE bookings IN ACCESS EXCLUSIVE MODE;
+        ALTER TABLE bookings ADD COLUMN IF NOT EXISTS time_state SMALLINT;
+        UPDATE bookings SET time_state = CASE WHEN start_date > LOCALTIMESTAMP THEN 0
+                WHEN end_date > LOCALTIMESTAMP THEN 1 ELSE 2 END
+            WHERE time_state IS NULL;
+        ALTER TABLE bookings ALTER COLUMN time_state SET NOT NULL;
+    END IF;
+END';
@@ -32,6 +32,7 @@ CREATE TABLE IF NOT EXISTS bookings (
     item_id BIGINT NOT NULL,
     booker_id BIGINT NOT NULL,
     status VARCHAR(100) NOT NULL,
+    time_state SMALLINT NOT NULL,
     CONSTRAINT fk_bookings_to_item FOREIGN KEY(item_id) REFERENCES items(id),
     CONSTRAINT fk_bookings_to_booker FOREIGN KEY(booker_id) REFERENCES users(id)
 );
@@ -45,3 +46,48 @@ CREATE TABLE IF NOT EXISTS comments (
     CONSTRAINT fk_comments_to_item FOREIGN KEY(item_id) REFERENCES items(id),
     CONSTRAINT fk_comments_to_author FOREIGN KEY(author_id) REFERENCES users(id)
 );
+
+CREATE INDEX IF NOT EXISTS idx_bookings_status_start ON bookings(status, start_date);
+
+CREATE TABLE IF NOT EXISTS scheduled_jobs (
+    name VARCHAR(64) PRIMARY KEY,
+    locked_until timestamp WITHOUT TIME ZONE NOT NULL,
+    locked_by VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    aggregate_type VARCHAR(32) NOT NULL,
+    aggregate_id BIGINT NOT NULL,
+    event_type VARCHAR(64) NOT NULL,
+    payload TEXT NOT NULL,
+    created timestamp WITHOUT TIME ZONE NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS booking_counters (
+    user_id BIGINT NOT NULL,
+    role VARCHAR(16) NOT NULL,
+    state VARCHAR(16) NOT NULL,
+    bookings_count BIGINT NOT NULL,
+    CONSTRAINT pk_booking_counters PRIMARY KEY (user_id, role, state),
+    CONSTRAINT fk_booking_counters_to_users FOREIGN KEY(user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS booking_counters_watermark (
+    id INT PRIMARY KEY,
+    counted_at timestamp WITHOUT TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_start ON bookings(start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_end ON bookings(end_date);
+
+CREATE INDEX IF NOT EXISTS idx_items_request ON items(request_id);
+CREATE INDEX IF NOT EXISTS idx_requests_requester ON requests(requester_id);
+CREATE INDEX IF NOT EXISTS idx_requests_created_id ON requests(created DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_comments_item_created_id ON comments(item_id, created DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_item_end ON bookings(booker_id, item_id, end_date);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_state_start ON bookings(booker_id, time_state, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_state_start ON bookings(item_id, time_state, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_state_start ON bookings(time_state, start_date);
@@ -0,0 +1,48 @@
+package ru.practicum.shareit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.test.context.TestComponent;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.UserService;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Создание пользователей, вещей и бронирований через сервисы, чтобы счетчики и кэши менялись как при запросах.
+ * Подключается к тесту через @Import
+ */
+@TestComponent
+@RequiredArgsConstructor
+public class TestData {
+    private final UserService userService;
+    private final ItemService itemService;
+    private final BookingService bookingService;
+
+    public User user(String name) {
+        return userService.create(User.builder()
+                .name(name)
+                .email(name + "-" + UUID.randomUUID() + "@example.com")
+                .build());
+    }
+
+    public Item item(User owner) {
+        return itemService.add(Item.builder()
+                .name("Дрель")
+                .description("Дрель с аккумулятором")
+                .available(true)
+                .build(), owner.getId());
+    }
+
+    public Booking booking(Item item, User booker, LocalDateTime start, LocalDateTime end) {
+        return bookingService.create(Booking.builder()
+                .item(item)
+                .start(start)
+                .end(end)
+                .build(), booker);
+    }
+}
@@ -0,0 +1,145 @@
+package ru.practicum.shareit.booking.counter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.TestData;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingFilterState;
+import ru.practicum.shareit.booking.BookingRepository;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.booking.BookingStatus;
+import ru.practicum.shareit.booking.BookingTimeState;
+import ru.practicum.shareit.booking.dto.BookingApprovalDto;
+import ru.practicum.shareit.booking.dto.BookingSummaryDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Import(TestData.class)
+class BookingCounterServiceTest {
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingCounterService bookingCounterService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingCounterWatermarkRepository watermarkRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void countersMatchRecountAfterCreateApproveExpireAdvanceAndDelete() {
+        User owner = testData.user("owner");
+        User firstBooker = testData.user("first");
+        User secondBooker = testData.user("second");
+        Item firstItem = testData.item(owner);
+        Item secondItem = testData.item(owner);
+        LocalDateTime now = LocalDateTime.now();
+
+        Booking past = testData.booking(firstItem, firstBooker, now.minusDays(3), now.minusDays(2));
+        Booking current = testData.booking(firstItem, secondBooker, now.minusHours(1), now.plusHours(5));
+        Booking soon = testData.booking(secondItem, firstBooker, now.plusHours(1), now.plusHours(2));
+        Booking future = testData.booking(secondItem, secondBooker, now.plusDays(2), now.plusDays(3));
+        Booking waiting = testData.booking(firstItem, secondBooker, now.plusDays(4), now.plusDays(5));
+        Booking expiring = testData.booking(secondItem, firstBooker, now.plusDays(5), now.plusDays(6));
+        assertMatchesRecount(owner, firstBooker, secondBooker);
+
+        bookingService.approve(past.getId(), true, owner.getId());
+        bookingService.approve(current.getId(), false, owner.getId());
+        bookingService.approveAll(List.of(new BookingApprovalDto(soon.getId(), true),
+                new BookingApprovalDto(future.getId(), false)), owner.getId());
+        assertMatchesRecount(owner, firstBooker, secondBooker);
+
+        bookingService.expire(List.of(expiring.getId(), past.getId()));
+        assertMatchesRecount(owner, firstBooker, secondBooker);
+
+        LocalDateTime later = now.plusDays(2).plusHours(12);
+        assertTrue(bookingCounterService.advance(later) > 0);
+        assertEquals(0, bookingCounterService.advance(later));
+        for (Booking booking : bookingRepository.findAll()) {
+            assertEquals(BookingTimeState.at(booking.getStart(), booking.getEnd(), later), booking.getTimeState(),
+                    "Отметка бронирования " + booking.getId());
+        }
+        assertMatchesRecount(owner, firstBooker, secondBooker);
+
+        bookingService.deleteById(waiting.getId());
+        testData.booking(firstItem, secondBooker, now.plusDays(1), now.plusDays(4));
+        assertMatchesRecount(owner, firstBooker, secondBooker);
+    }
+
+    @Test
+    void initializationRecountsCountersFromBookings() {
+        User owner = testData.user("owner");
+        User booker = testData.user("booker");
+        Item item = testData.item(owner);
+        LocalDateTime now = LocalDateTime.now();
+        Booking past = testData.booking(item, booker, now.minusDays(2), now.minusDays(1));
+        testData.booking(item, booker, now.plusDays(1), now.plusDays(2));
+        bookingService.approve(past.getId(), false, owner.getId());
+
+        jdbcTemplate.update("UPDATE booking_counters SET bookings_count = bookings_count + 7");
+        jdbcTemplate.update("UPDATE booking_counters_watermark SET counted_at = NULL");
+        Booking uncounted = testData.booking(item, booker, now.plusDays(3), now.plusDays(4));
+        bookingService.approve(uncounted.getId(), true, owner.getId());
+
+        assertTrue(bookingCounterService.initializeIfMissing());
+        assertMatchesRecount(owner, booker);
+    }
+
+    /**
+     * Пересчет под исключительной блокировкой отметки, чтобы фоновый перенос не сдвинул отметки бронирований
+     * во время сравнения
+     */
+    private void assertMatchesRecount(User... users) {
+        transactionTemplate.executeWithoutResult(status -> {
+            watermarkRepository.findForUpdate().orElseThrow();
+            List<Booking> bookings = bookingRepository.findAll();
+            for (User user : users) {
+                BookingSummaryDto summary = bookingCounterService.getSummary(user.getId());
+                assertEquals(recount(bookings, user.getId(), BookingRole.BOOKER), summary.getBooker(),
+                        "Счетчики автора " + user.getId());
+                assertEquals(recount(bookings, user.getId(), BookingRole.OWNER), summary.getOwner(),
+                        "Счетчики владельца " + user.getId());
+            }
+        });
+    }
+
+    private static Map<BookingFilterState, Long> recount(List<Booking> bookings, long userId, BookingRole role) {
+        Map<BookingFilterState, Long> counts = new EnumMap<>(BookingFilterState.class);
+        for (BookingFilterState state : BookingFilterState.values()) {
+            counts.put(state, 0L);
+        }
+        for (Booking booking : bookings) {
+            long participantId = role == BookingRole.BOOKER ? booking.getBooker().getId() :
+                    booking.getItem().getOwner().getId();
+            if (participantId != userId) {
+                continue;
+            }
+            counts.merge(BookingFilterState.ALL, 1L, Long::sum);
+            counts.merge(BookingFilterState.valueOf(booking.getTimeState().name()), 1L, Long::sum);
+            if (booking.getStatus() == BookingStatus.WAITING) {
+                counts.merge(BookingFilterState.WAITING, 1L, Long::sum);
+            } else if (booking.getStatus() == BookingStatus.REJECTED) {
+                counts.merge(BookingFilterState.REJECTED, 1L, Long::sum);
+            }
+        }
+        return counts;
+    }
+}
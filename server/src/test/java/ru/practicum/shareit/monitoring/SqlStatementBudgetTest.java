@@ -0,0 +1,116 @@
+package ru.practicum.shareit.monitoring;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import ru.practicum.shareit.TestData;
+import ru.practicum.shareit.booking.Booking;
+import ru.practicum.shareit.booking.BookingService;
+import ru.practicum.shareit.item.ItemService;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.practicum.shareit.common.Constants.X_SHARER_USER_ID;
+
+/**
+ * Число SQL-выражений эндпоинтов с бюджетом не растет с числом вещей, бронирований и авторов отзывов.
+ * Данных больше, чем бюджет, поэтому вернувшаяся загрузка по одной строке превышает его
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(TestData.class)
+class SqlStatementBudgetTest {
+    private static final int ITEMS = 8;
+    private static final int AUTHORS = 6;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SqlBudgetProperties properties;
+    @Autowired
+    private TestData testData;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingService bookingService;
+
+    private User owner;
+    private User viewer;
+    private final List<Item> items = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        owner = testData.user("owner");
+        viewer = testData.user("viewer");
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(testData.item(owner));
+        }
+        for (int i = 0; i < AUTHORS; i++) {
+            User author = testData.user("author");
+            for (Item item : items) {
+                Booking finished = testData.booking(item, author, now.minusDays(10 + i), now.minusDays(9 + i));
+                bookingService.approve(finished.getId(), true, owner.getId());
+                itemService.createComment(Comment.builder().text("Отзыв " + i).build(), author.getId(), item.getId());
+            }
+        }
+        for (Item item : items) {
+            testData.booking(item, viewer, now.plusDays(1), now.plusDays(2));
+        }
+    }
+
+    @Test
+    void itemCardStaysWithinBudget() throws Exception {
+        long itemId = items.get(0).getId();
+        assertWithinBudget("GET /items/{itemId}", get("/items/{itemId}", itemId)
+                .header(X_SHARER_USER_ID, owner.getId()));
+        assertWithinBudget("GET /items/{itemId}", get("/items/{itemId}", items.get(1).getId())
+                .header(X_SHARER_USER_ID, viewer.getId()));
+    }
+
+    @Test
+    void ownerItemsStayWithinBudget() throws Exception {
+        assertWithinBudget("GET /items", get("/items")
+                .param("from", "0")
+                .param("size", "20")
+                .header(X_SHARER_USER_ID, owner.getId()));
+    }
+
+    @Test
+    void commentStaysWithinBudget() throws Exception {
+        User author = testData.user("author");
+        Item item = items.get(0);
+        Booking finished = testData.booking(item, author, LocalDateTime.now().minusDays(3), LocalDateTime.now().minusDays(2));
+        bookingService.approve(finished.getId(), true, owner.getId());
+        assertWithinBudget("POST /items/{itemId}/comment", post("/items/{itemId}/comment", item.getId())
+                .header(X_SHARER_USER_ID, author.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"text\":\"Хорошая дрель\"}"));
+    }
+
+    private void assertWithinBudget(String endpoint, RequestBuilder request) throws Exception {
+        Integer budget = properties.getEndpointBudgets().get(endpoint);
+        assertNotNull(budget, "Нет бюджета для " + endpoint);
+        MvcResult result = mockMvc.perform(request).andExpect(status().isOk()).andReturn();
+        Integer statements = (Integer) result.getRequest().getAttribute(SqlBudgetFilter.STATEMENTS_ATTRIBUTE);
+        assertNotNull(statements, "Фильтр не посчитал выражения " + endpoint);
+        assertTrue(statements <= budget, endpoint + " выполнил " + statements + " SQL-выражений при бюджете " + budget);
+    }
+}